@@ -0,0 +1,88 @@
+// by R. Malope, T. Coutts, K. Lesese, H. Chagaluka, 2025
+
+// Checks that the scanner allocates nothing per token once it is warmed up -
+// that next() fills in the one Token it is given, and keeps no more than the
+// offset of each lexeme.  The bytes allocated by the scanning thread are
+// counted while the same declarations are scanned once over and twice over;
+// what it costs to open the input and start the scanner is the same both times,
+// so the difference is what the extra tokens cost.  The input is read through
+// InFile and memory mapped in turn.
+//
+// Usage: java AllocCheck [Copies]
+
+import java.io.*;
+import java.lang.management.*;
+import library.*;
+
+class AllocCheck {
+
+    static final com.sun.management.ThreadMXBean threads
+            = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static int tokens;
+
+    static long scan(File f, boolean mapped) {
+        // scans f, counting its tokens, and returns the bytes allocated in doing so
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        InFile input = new InFile(f.getPath(), mapped);
+        DeclScanner scanner = new DeclScanner(input, null);
+        Token sym = new Token();
+        tokens = 0;
+        do {
+            scanner.next(sym);
+            tokens++;
+        } while (sym.kind != DeclScanner.EOFSym && sym.kind != DeclScanner.noSym);
+        input.close();
+        return threads.getThreadAllocatedBytes(thread) - before;
+    }
+
+    static String declarations(int copies) {
+        // the declarations of decl2.txt, copies times over
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < copies; i++)
+            sb.append("TYPE\n")
+              .append("  Colours = ( red, orange, yellow, green, blue, indigo, violet);\n")
+              .append("  SmallInts = [ 1 .. 31 ];\n")
+              .append("  Persons = RECORD\n")
+              .append("              Name, Surname : ARRAY [0 .. 10] OF CHAR;\n")
+              .append("              Age : INTEGER;\n")
+              .append("            END;\n")
+              .append("(* a comment (* nested *) *)\n")
+              .append("VAR\n")
+              .append("  I, J, K : Exported.Type;\n")
+              .append("  Dynamic : POINTER TO ARRAY [ 1 .. 100] OF INTEGER;\n");
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int copies = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("This JVM cannot count the bytes a thread allocates");
+            System.exit(1);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        File once = CommentBench.makeInput("once", declarations(copies));
+        File twice = CommentBench.makeInput("twice", declarations(2 * copies));
+        boolean failed = false;
+        for (boolean mapped : new boolean[] { false, true }) {
+            for (int i = 0; i < 200; i++) { // let the scanner be compiled
+                scan(once, mapped);
+                scan(twice, mapped);
+            }
+            long few = scan(once, mapped);
+            int fewTokens = tokens;
+            long many = scan(twice, mapped);
+            double perToken = (double) (many - few) / (tokens - fewTokens);
+            System.out.printf("%-7s %7d tokens %9d bytes, %7d tokens %9d bytes: %.3f bytes a token%n",
+                    mapped ? "mapped" : "InFile", fewTokens, few, tokens, many, perToken);
+            // a whole object for every hundred tokens would be 0.16 a token
+            if (perToken > 0.1)
+                failed = true;
+        }
+        System.out.println(failed ? "The scanner allocates as it goes" : "No allocation per token");
+        if (failed)
+            System.exit(1);
+    }
+
+} // AllocCheck
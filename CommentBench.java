@@ -0,0 +1,91 @@
+// by R. Malope, T. Coutts, K. Lesese, H. Chagaluka, 2025
+
+// Times the scanner on comment-heavy declarations - long runs of consecutive
+// comments (as in generated headers), deeply nested comments, and long comment
+// bodies - read through InFile, and memory mapped with and without skipping
+// blanks and comment text a word at a time.
+//
+// Usage: java CommentBench [Repeats]
+
+import java.io.*;
+import java.nio.file.*;
+import library.*;
+
+class CommentBench {
+
+    static File makeInput(String name, String text) throws IOException {
+        // writes text to a temporary file that is removed on exit (ParseBench and
+        // AllocCheck make their inputs with this too)
+        File f = File.createTempFile(name, ".txt");
+        f.deleteOnExit();
+        Files.write(f.toPath(), text.getBytes("ISO-8859-1"));
+        return f;
+    }
+
+    static void time(String name, File f, boolean mapped, int repeats) {
+        // scans f repeatedly, and reports the best time taken
+        long best = Long.MAX_VALUE;
+        int tokens = 0;
+        for (int r = 0; r < repeats; r++) {
+            long start = System.nanoTime();
+            InFile input = new InFile(f.getPath(), mapped);
+            DeclScanner scanner = new DeclScanner(input, null);
+            Token sym = new Token();
+            tokens = 0;
+            do {
+                scanner.next(sym);
+                tokens++;
+            } while (sym.kind != DeclScanner.EOFSym && sym.kind != DeclScanner.noSym);
+            input.close();
+            if (sym.kind == DeclScanner.noSym) {
+                System.out.println(name + ": " + scanner.error());
+                return;
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        String how = !mapped ? "InFile" : DeclScanner.wordScan ? "words" : "bytes";
+        System.out.printf("%-12s %-7s %8d bytes %6d tokens %8.2f ms%n", name, how, f.length(), tokens, best / 1e6);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int repeats = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+        // 100000 comments one after another, with a declaration now and then
+        StringBuilder sb = new StringBuilder("TYPE\n");
+        for (int i = 0; i < 100000; i++) {
+            sb.append("(* generated header line ").append(i).append(" *)\n");
+            if (i % 1000 == 0)
+                sb.append("  T").append(i).append(" = INTEGER;\n");
+        }
+        File consecutive = makeInput("consecutive", sb.toString());
+
+        // comments nested 20000 deep
+        sb.setLength(0);
+        sb.append("VAR\n");
+        for (int i = 0; i < 20000; i++)
+            sb.append("(* level ").append(i).append(' ');
+        for (int i = 0; i < 20000; i++)
+            sb.append("*)");
+        sb.append("\n  X : INTEGER;\n");
+        File nested = makeInput("nested", sb.toString());
+
+        // a few long comments with no brackets in them
+        sb.setLength(0);
+        sb.append("TYPE\n");
+        for (int i = 0; i < 100; i++) {
+            sb.append("(*");
+            for (int j = 0; j < 2000; j++)
+                sb.append(" long comment text, with nothing much in it\n");
+            sb.append("*) T").append(i).append(" = CARDINAL;\n");
+        }
+        File bodies = makeInput("bodies", sb.toString());
+
+        for (int how = 0; how < 3; how++) {
+            DeclScanner.wordScan = how != 1;
+            time("consecutive", consecutive, how > 0, repeats);
+            time("nested", nested, how > 0, repeats);
+            time("bodies", bodies, how > 0, repeats);
+        }
+    } // main
+
+} // CommentBench
@@ -0,0 +1,184 @@
+// by R. Malope, T. Coutts, K. Lesese, H. Chagaluka, 2025
+
+// Parses many files of Modula-2 declarations in one run, rather than starting
+// a JVM for each.  Each argument is a file, a directory (every file under it
+// with the extension Ext is parsed), or a glob such as decls/**.txt.  The files
+// are parsed in parallel by a work-stealing pool, each worker thread using a
+// Mod2DeclParser of its own, and each file's listing is written beside it as
+// Mod2decl4 would write it.  The report lists the files in the order the
+// arguments name them (in name order within a directory or glob), however the
+// work happened to be shared out.
+//
+// -m, -z and -s are as for Mod2decl4
+// -q leaves out the files that parsed correctly
+// -w sets the number of worker threads (the number of processors by default);
+//    more may help where files are read over a network and threads mostly wait
+// -e sets the extension of the files parsed in a directory (.txt by default)
+//
+// Usage: java Mod2Batch [-m] [-z] [-s] [-q] [-w Workers] [-e Ext] Path|Glob ...
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+class Mod2Batch {
+
+    static boolean mapped, zeroCopy, table, quiet;
+    static String extension = ".txt";
+
+    // +++++++++++++++++++++++++ Finding the files +++++++++++++++++++++++++++++++
+
+    static void expand(String arg, List<Path> files) throws IOException {
+        // adds the files that arg names to files
+        int wild = -1;
+        for (int i = 0; i < arg.length() && wild < 0; i++)
+            if ("*?[{".indexOf(arg.charAt(i)) >= 0)
+                wild = i;
+        if (wild < 0) {
+            Path p = Paths.get(arg);
+            if (Files.isDirectory(p))
+                walk(p, f -> f.getFileName().toString().endsWith(extension), files);
+            else
+                files.add(p);
+            return;
+        }
+        // walk the directory that holds the first wildcard, matching the whole
+        // pattern against every file under it
+        int slash = Math.max(arg.lastIndexOf('/', wild), arg.lastIndexOf(File.separatorChar, wild));
+        Path base = Paths.get(slash < 0 ? "" : arg.substring(0, slash + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + arg);
+        walk(base, matcher::matches, files);
+    }
+
+    static void walk(Path dir, PathMatcher matcher, List<Path> files) throws IOException {
+        // adds the regular files under dir that matcher accepts, in name order
+        List<Path> found = new ArrayList<>();
+        if (!Files.isDirectory(dir))
+            return;
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.filter(p -> Files.isRegularFile(p) && matcher.matches(p)).forEach(found::add);
+        }
+        Collections.sort(found);
+        files.addAll(found);
+    }
+
+    // +++++++++++++++++++++++++ Parsing them ++++++++++++++++++++++++++++++++++++
+
+    static Path[] files;
+    static String[] reports; // what is to be said about each file, or null
+    static int[] outcomes; // 0 parsed correctly, 1 errors found, 2 abandoned
+
+    static final ThreadLocal<Mod2DeclParser> parsers = ThreadLocal.withInitial(() -> {
+        Mod2DeclParser p = new Mod2DeclParser();
+        p.mapped = mapped;
+        p.zeroCopy = zeroCopy;
+        p.table = table;
+        return p;
+    });
+
+    static class Batch extends RecursiveAction {
+        // parses files[from .. to-1], halving the range until it is small, so
+        // that idle workers can steal the halves not yet started
+        private static final long serialVersionUID = 1L;
+        final int from, to;
+
+        Batch(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from <= 4) {
+                for (int i = from; i < to; i++)
+                    parse(i);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Batch(from, mid), new Batch(mid, to));
+            }
+        }
+    }
+
+    static void parse(int i) {
+        // parses files[i], and notes its report
+        Mod2DeclParser.Result r;
+        try {
+            r = parsers.get().parse(files[i]);
+        } catch (StackOverflowError e) {
+            outcomes[i] = 2;
+            reports[i] = files[i] + ": types nested too deeply (try -s)\n";
+            return;
+        }
+        outcomes[i] = r.ok() ? 0 : r.failure == null ? 1 : 2;
+        if (quiet && r.ok())
+            return;
+        StringBuilder sb = new StringBuilder();
+        sb.append(files[i]).append(": ");
+        if (r.errors > 0)
+            sb.append(r.errors).append(r.errors == 1 ? " error" : " errors").append(" found");
+        else if (r.failure == null)
+            sb.append("Parsed correctly");
+        else
+            sb.append("abandoned");
+        sb.append('\n');
+        for (String message : r.messages)
+            sb.append("    ").append(message).append('\n');
+        reports[i] = sb.toString();
+    }
+
+    // +++++++++++++++++++++ Main driver function +++++++++++++++++++++++++++++++
+
+    public static void main(String[] args) throws IOException {
+        int workers = Runtime.getRuntime().availableProcessors();
+        List<Path> found = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-m"))
+                mapped = true;
+            else if (arg.equals("-z"))
+                mapped = zeroCopy = true;
+            else if (arg.equals("-s"))
+                table = true;
+            else if (arg.equals("-q"))
+                quiet = true;
+            else if (arg.equals("-w") && i + 1 < args.length)
+                workers = Math.max(1, Integer.parseInt(args[++i]));
+            else if (arg.equals("-e") && i + 1 < args.length)
+                extension = args[++i];
+            else if (!arg.startsWith("-"))
+                names.add(arg);
+        }
+        if (names.isEmpty()) {
+            System.out.println("Usage: Mod2Batch [-m] [-z] [-s] [-q] [-w Workers] [-e Ext] Path|Glob ...");
+            System.exit(1);
+        }
+        for (String name : names) {
+            int before = found.size();
+            expand(name, found);
+            if (found.size() == before)
+                System.out.println("Mod2Batch: no files match " + name);
+        }
+
+        long start = System.nanoTime();
+        files = found.toArray(new Path[0]);
+        reports = new String[files.length];
+        outcomes = new int[files.length];
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        pool.invoke(new Batch(0, files.length));
+        pool.shutdown();
+
+        int[] counts = new int[3];
+        for (int i = 0; i < files.length; i++) {
+            counts[outcomes[i]]++;
+            if (reports[i] != null)
+                System.out.print(reports[i]);
+        }
+        System.out.printf("%d files: %d parsed correctly, %d with errors, %d abandoned (%.0f ms)%n",
+                files.length, counts[0], counts[1], counts[2], (System.nanoTime() - start) / 1e6);
+        if (counts[1] + counts[2] > 0)
+            System.exit(1);
+    }
+
+} // Mod2Batch
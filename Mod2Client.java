@@ -0,0 +1,88 @@
+// by R. Malope, T. Coutts, K. Lesese, H. Chagaluka, 2025
+
+// Sends a parse request to a running Mod2Server (see there), and writes the
+// reply as Mod2decl4 would have written it, ending with the same status.
+// FileName is sent as an absolute path, for the server to read; with -i, or
+// when FileName is -, the text itself is sent instead (from standard input
+// for -), for a server that cannot see the file.  -s parses with the
+// table-driven parser, and -l writes the listing to standard output as well.
+// -stats asks how the server's cache of results is doing, and -stop asks the
+// server to close down.
+//
+// Usage: java Mod2Client [-s] [-l] [-i] Address FileName|-
+//        java Mod2Client -stats|-stop Address
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+class Mod2Client {
+
+    static SocketChannel connect(String address) throws IOException {
+        // connects to the Unix-domain socket at path address, or the loopback
+        // port address if that is a number
+        if (address.matches("\\d+"))
+            return SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(address)));
+        return SocketChannel.open(UnixDomainSocketAddress.of(address));
+    }
+
+    static void send(SocketChannel server, byte[] bytes) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(bytes);
+        while (b.hasRemaining())
+            server.write(b);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String address = null, fileName = null, options = "", command = null;
+        boolean inline = false;
+        for (String arg : args) {
+            if (arg.equals("-s") || arg.equals("-l"))
+                options += arg + " ";
+            else if (arg.equals("-i"))
+                inline = true;
+            else if (arg.equals("-stats") || arg.equals("-stop"))
+                command = arg.substring(1).toUpperCase();
+            else if (!arg.startsWith("-") || arg.equals("-") && address != null) {
+                if (address == null)
+                    address = arg;
+                else
+                    fileName = arg;
+            }
+        }
+        if (address == null || fileName == null && command == null) {
+            System.out.println("Usage: Mod2Client [-s] [-l] [-i] Address FileName|-");
+            System.out.println("       Mod2Client -stats|-stop Address");
+            System.exit(1);
+        }
+
+        try (SocketChannel server = connect(address)) {
+            if (command != null)
+                send(server, (command + "\n").getBytes(StandardCharsets.ISO_8859_1));
+            else if (inline || fileName.equals("-")) {
+                send(server, ("PARSE " + options + "-\n").getBytes(StandardCharsets.ISO_8859_1));
+                send(server, fileName.equals("-") ? System.in.readAllBytes()
+                        : Files.readAllBytes(Paths.get(fileName)));
+            } else {
+                String path = Paths.get(fileName).toAbsolutePath().toString();
+                send(server, ("PARSE " + options + path + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            server.shutdownOutput(); // the end of the request
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(server),
+                    StandardCharsets.UTF_8));
+            String status = in.readLine();
+            char[] buf = new char[8192];
+            Writer out = new OutputStreamWriter(System.out);
+            for (int n; (n = in.read(buf)) > 0; )
+                out.write(buf, 0, n);
+            out.flush();
+            if (status == null || !status.equals("ok") && !status.equals("stopping"))
+                System.exit(1);
+        }
+    }
+
+} // Mod2Client
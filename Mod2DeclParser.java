@@ -0,0 +1,866 @@
+// by R. Malope, T. Coutts, K. Lesese, H. Chagaluka, 2025
+
+// The parser of Mod2decl4 as a class of its own.  Everything a parse needs -
+// input, listing, scanner, lookahead token, error counts and tree - is held in
+// the instance rather than in static fields, so each thread may run a parser
+// of its own, and any number of files can be parsed at once.  One instance
+// can also parse any number of inputs in turn, each parse starting afresh
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import library.*;
+
+class Mod2DeclParser {
+
+    // +++++++++++++++++++++++++++++++ Options ++++++++++++++++++++++++++++++++++
+
+    // These may be set before parse() is called (see Mod2decl4 for what each
+    // does); mapped, zeroCopy and listing only apply to input from a file, which
+    // is read through InFile unless mapped is set
+
+    boolean mapped, zeroCopy, pipelined, parallel, table;
+    boolean listing = true; // write the reflected listing FileName.out
+    int chunkSize = 4 << 20; // bytes in each chunk scanned in parallel
+
+    // +++++++++++++++++++++++++ File Handling and Error handlers
+    // ++++++++++++++++++++
+
+    InFile input; // null unless parsing a file
+    ByteBuffer text; // null unless parsing a buffer
+    OutFile output; // reflected listing, or null
+
+    static String newFileName(String oldFileName, String ext) {
+        // Creates new file name by changing extension of oldFileName to ext
+        int i = oldFileName.lastIndexOf('.');
+        if (i < 0)
+            return oldFileName + ext;
+        else
+            return oldFileName.substring(0, i) + ext;
+    }
+
+    // When echo is false the source is not reflected as it is read; instead
+    // the position of each error is noted, and writeListing() builds the
+    // listing by copying the input file around the error messages.  Messages
+    // are gathered in the Result, rather than written to standard output where
+    // those of parsers on other threads would be interleaved with them
+
+    boolean echo = true;
+    ArrayList<Integer> errorPos = new ArrayList<>();
+    ArrayList<String> errorText = new ArrayList<>();
+    ArrayList<String> messages = new ArrayList<>();
+
+    void reportError(String errorMessage) {
+        // Records errorMessage, with the line and column of sym, and writes it
+        // to the reflected output.  Tokens carry only their offset, so the
+        // lines of the input are only counted once there is an error to report
+        String at = scanner.where(sym.pos);
+        messages.add(at.isEmpty() ? errorMessage : "-- " + at + ": " + errorMessage);
+        if (output == null)
+            return;
+        if (echo) {
+            scanner.reflect();
+            output.writeLine(errorMessage);
+            output.flushError();
+        } else {
+            errorPos.add(scanPosition());
+            errorText.add(errorMessage);
+        }
+    }
+
+    void writeListing() {
+        // Produces the reflected listing from the noted error positions, copying
+        // the source up to where scanning stopped straight from the input file
+        // (or from the buffer being parsed)
+        try (FileChannel src = input == null ? null
+                : FileChannel.open(Paths.get(input.fileName()), StandardOpenOption.READ)) {
+            int done = 0;
+            for (int i = 0; i < errorPos.size(); i++) {
+                copySource(src, done, errorPos.get(i));
+                output.writeLine(errorText.get(i));
+                done = errorPos.get(i);
+            }
+            copySource(src, done, scanPosition());
+        } catch (IOException e) {
+            messages.add("Listing could not be written - " + e.getMessage());
+        }
+    }
+
+    boolean droppedCR; // the last byte looked at by copySource was a CR left out
+
+    void copySource(FileChannel src, int from, int to) {
+        // Copies the source from .. to-1 to the listing, leaving out each CR that
+        // InFile drops (any CR but the second of two), so that the listing is
+        // the one that echoing the characters read would have given
+        ByteBuffer bytes = src != null ? input.buffer() : text;
+        int start = from;
+        for (int p = from; p < to; p++) {
+            droppedCR = bytes.get(p) == '\r' && !droppedCR;
+            if (droppedCR) {
+                copyRange(src, start, p);
+                start = p + 1;
+            }
+        }
+        copyRange(src, start, to);
+    }
+
+    void copyRange(FileChannel src, int from, int to) {
+        if (from == to)
+            return;
+        if (src != null)
+            output.writeRange(src, from, to - from);
+        else
+            output.writeRange(text, from, to - from);
+    }
+
+    void finishListing() {
+        // Completes the reflected listing with whatever has not been written yet
+        if (!echo)
+            writeListing();
+        else
+            scanner.reflect();
+    }
+
+    // Syntax errors do not stop the parse (see synchronise() below).  An error
+    // is only reported if at least minErrDist tokens have been accepted since
+    // the last one, as errors closer together are most likely cascades of the
+    // first; and parsing is abandoned after maxErrors errors
+
+    static final int minErrDist = 2, maxErrors = 100;
+    int errorCount = 0, errDist = minErrDist;
+
+    void synError(String errorMessage) {
+        // Reports a syntax error, unless it follows too closely on the last one
+        if (errDist >= minErrDist) {
+            reportError(errorMessage);
+            if (++errorCount == maxErrors)
+                abort("Too many errors");
+        }
+        errDist = 0;
+    }
+
+    // Rather than end the program, abort() throws a ParseAbort, which
+    // parse() catches; the listing is still completed and closed there
+
+    static class ParseAbort extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ParseAbort(String message) {
+            super(message, null, false, false); // the stack trace is never wanted
+        }
+    }
+
+    void abort(String errorMessage) {
+        // Abandons parsing after issuing error message
+        reportError(errorMessage);
+        throw new ParseAbort(errorMessage);
+    }
+
+    // +++++++++++++++++++++++ token kinds enumeration +++++++++++++++++++++++++
+
+    // These are the kinds delivered by the generated scanner - see
+    // library/DeclScanner.atg
+
+    static final int noSym = DeclScanner.noSym,
+            EOFSym = DeclScanner.EOFSym,
+            identifierSym = DeclScanner.identifierSym,
+            numberSym = DeclScanner.numberSym,
+            typeSym = DeclScanner.typeSym,
+            varSym = DeclScanner.varSym,
+            arraySym = DeclScanner.arraySym,
+            recordSym = DeclScanner.recordSym,
+            endSym = DeclScanner.endSym,
+            setSym = DeclScanner.setSym,
+            ofSym = DeclScanner.ofSym,
+            pointerSym = DeclScanner.pointerSym,
+            toSym = DeclScanner.toSym,
+            equalsSym = DeclScanner.equalsSym,
+            commaSym = DeclScanner.commaSym,
+            semicolonSym = DeclScanner.semicolonSym,
+            colonSym = DeclScanner.colonSym,
+            dotSym = DeclScanner.dotSym,
+            leftBracketSym = DeclScanner.leftBracketSym,
+            rightBracketSym = DeclScanner.rightBracketSym,
+            leftParenSym = DeclScanner.leftParenSym,
+            rightParenSym = DeclScanner.rightParenSym,
+            starSym = DeclScanner.starSym,
+            rangeSym = DeclScanner.rangeSym;
+
+    // FIRST and FOLLOW sets of the productions in the parser comments below.
+    // After changing a production, regenerate them with
+    //
+    //   java SetGen library/DeclScanner.atg Mod2DeclParser.java
+
+    //-->sets
+    static final TokenSet
+            mod2DeclFirst = new TokenSet(typeSym, varSym),
+            mod2DeclFollow = new TokenSet(EOFSym),
+            declarationFirst = new TokenSet(typeSym, varSym),
+            declarationFollow = new TokenSet(EOFSym, typeSym, varSym),
+            typeDeclFirst = new TokenSet(identifierSym),
+            typeDeclFollow = new TokenSet(semicolonSym),
+            varDeclFirst = new TokenSet(identifierSym),
+            varDeclFollow = new TokenSet(semicolonSym),
+            typeFirst = new TokenSet(identifierSym, arraySym, recordSym, setSym, pointerSym, leftBracketSym, leftParenSym),
+            typeFollow = new TokenSet(endSym, semicolonSym),
+            simpleTypeFirst = new TokenSet(identifierSym, leftBracketSym, leftParenSym),
+            simpleTypeFollow = new TokenSet(endSym, ofSym, commaSym, semicolonSym),
+            qualIdentFirst = new TokenSet(identifierSym),
+            qualIdentFollow = new TokenSet(endSym, ofSym, commaSym, semicolonSym, leftBracketSym),
+            subrangeFirst = new TokenSet(leftBracketSym),
+            subrangeFollow = new TokenSet(endSym, ofSym, commaSym, semicolonSym),
+            constantFirst = new TokenSet(identifierSym, numberSym),
+            constantFollow = new TokenSet(rightBracketSym, rangeSym),
+            enumerationFirst = new TokenSet(leftParenSym),
+            enumerationFollow = new TokenSet(endSym, ofSym, commaSym, semicolonSym),
+            identListFirst = new TokenSet(identifierSym),
+            identListFollow = new TokenSet(colonSym, rightParenSym),
+            arrayTypeFirst = new TokenSet(arraySym),
+            arrayTypeFollow = new TokenSet(endSym, semicolonSym),
+            recordTypeFirst = new TokenSet(recordSym),
+            recordTypeFollow = new TokenSet(endSym, semicolonSym),
+            fieldListsFirst = new TokenSet(identifierSym, semicolonSym),
+            fieldListsFollow = new TokenSet(endSym),
+            fieldListFirst = new TokenSet(identifierSym),
+            fieldListFollow = new TokenSet(endSym, semicolonSym),
+            setTypeFirst = new TokenSet(setSym),
+            setTypeFollow = new TokenSet(endSym, semicolonSym),
+            pointerTypeFirst = new TokenSet(pointerSym),
+            pointerTypeFollow = new TokenSet(endSym, semicolonSym);
+    //<--sets
+
+    // +++++++++++++++++++++++++++++++ Scanner ++++++++++++++++++++++++++++++++++
+
+    // The scanner is generated by ScanGen from library/DeclScanner.atg, and is
+    // shared with Mod2decl1 and Mod2decl2
+
+    DeclScanner scanner;
+
+    // sym is reused for every token: it records where the token lies, and only
+    // makes a String of the spelling if sym.val() is called
+
+    Token sym = new Token();
+
+    // In pipelined mode the scanner runs ahead on a thread of its own, and the
+    // parser takes tokens from ring instead of calling the scanner itself; in
+    // parallel mode chunks of the input are scanned at once, and the parser
+    // takes the tokens from chunks
+
+    TokenRing ring;
+    ParallelScan chunks;
+
+    void getSym() {
+        // scans for next sym from input
+        if (ring != null)
+            ring.take(sym);
+        else if (chunks != null)
+            chunks.take(sym);
+        else
+            scanner.next(sym);
+        errDist++;
+        if (sym.kind == noSym)
+            abort(chunks != null ? chunks.error() : scanner.error());
+    }
+
+    int scanPosition() {
+        // where the scanner stood when sym was scanned - the scanner thread
+        // itself may be well ahead of that
+        if (ring != null)
+            return ring.position();
+        if (chunks != null)
+            return chunks.position();
+        return scanner.position();
+    }
+
+    // +++++++++++++++++++++++++++++++ Parser +++++++++++++++++++++++++++++++++++
+
+    // Utility methods for error handling
+    void accept(int wantedSym, String errorMessage) {
+        if (sym.kind == wantedSym)
+            getSym();
+        else
+            synError(errorMessage);
+    }
+
+    void accept(TokenSet allowedSet, String errorMessage) {
+        if (allowedSet.contains(sym.kind))
+            getSym();
+        else
+            synError(errorMessage);
+    }
+
+    // After an error the parser recovers at the SYNC points of the grammar:
+    // if sym cannot be handled there, tokens are skipped up to one in the
+    // synchronisation set.  EOF is in every set, so skipping always stops
+
+    static final TokenSet topSync = new TokenSet(typeSym, varSym, EOFSym),
+            declSync = new TokenSet(semicolonSym, typeSym, varSym, EOFSym),
+            fieldSync = new TokenSet(semicolonSym, endSym, typeSym, varSym, EOFSym);
+
+    void synchronise(TokenSet sync, String errorMessage) {
+        // SYNC - if sym is not in sync, reports errorMessage and skips to a
+        // token that is.  What is found there is not reported again at once
+        if (!sync.contains(sym.kind)) {
+            synError(errorMessage);
+            do
+                getSym();
+            while (!sync.contains(sym.kind));
+            errDist = 0;
+        }
+    }
+
+    // The parser builds the tree of the declarations as it goes - see
+    // library/DeclTree for its shape
+
+    DeclTree tree = new DeclTree();
+
+    void acceptLeaf(int nodeKind, int wantedSym, String errorMessage) {
+        // accepts wantedSym, recording it in the tree as a node of nodeKind
+        if (sym.kind == wantedSym)
+            tree.leaf(nodeKind, sym);
+        accept(wantedSym, errorMessage);
+    }
+
+    // Parser methods for each non-terminal
+    void Mod2Decl() {
+        // Mod2Decl = { SYNC Declaration } .
+        tree.open(DeclTree.declsNode, sym);
+        while (true) {
+            synchronise(topSync, "TYPE or VAR expected");
+            if (sym.kind == EOFSym)
+                break;
+            Declaration();
+        }
+        accept(EOFSym, "EOF expected");
+        tree.close();
+    }
+
+    void Declaration() {
+        // Declaration = "TYPE" { TypeDecl SYNC ";" } | "VAR" { VarDecl SYNC ";" } .
+        if (sym.kind == typeSym) {
+            getSym();
+            while (typeDeclFirst.contains(sym.kind)) {
+                TypeDecl();
+                synchronise(declSync, "; expected");
+                accept(semicolonSym, "; expected");
+            }
+        } else if (sym.kind == varSym) {
+            getSym();
+            while (varDeclFirst.contains(sym.kind)) {
+                VarDecl();
+                synchronise(declSync, "; expected");
+                accept(semicolonSym, "; expected");
+            }
+        } else {
+            synError("TYPE or VAR expected");
+        }
+    }
+
+    void TypeDecl() {
+        // TypeDecl = identifier "=" Type .
+        tree.open(DeclTree.typeDeclNode, sym);
+        acceptLeaf(DeclTree.identNode, identifierSym, "identifier expected");
+        accept(equalsSym, "= expected");
+        Type();
+        tree.close();
+    }
+
+    void VarDecl() {
+        // VarDecl = IdentList ":" Type .
+        tree.open(DeclTree.varDeclNode, sym);
+        IdentList();
+        accept(colonSym, ": expected");
+        Type();
+        tree.close();
+    }
+
+    void Type() {
+        // Type = SimpleType | ArrayType | RecordType | SetType | PointerType .
+        if (simpleTypeFirst.contains(sym.kind)) {
+            SimpleType();
+            return;
+        }
+        switch (sym.kind) {
+            case arraySym:
+                ArrayType();
+                break;
+            case recordSym:
+                RecordType();
+                break;
+            case setSym:
+                SetType();
+                break;
+            case pointerSym:
+                PointerType();
+                break;
+            default:
+                synError("type expected");
+        }
+    }
+
+    void SimpleType() {
+        // SimpleType = QualIdent [ Subrange ] | Enumeration | Subrange .
+        if (sym.kind == leftParenSym) {
+            Enumeration();
+        } else if (sym.kind == leftBracketSym) {
+            Subrange();
+        } else {
+            QualIdent();
+            if (sym.kind == leftBracketSym) {
+                tree.wrap(DeclTree.subrangeNode); // the QualIdent becomes the subrange's base type
+                SubrangeBounds();
+                tree.close();
+            }
+        }
+    }
+
+    void QualIdent() {
+        // QualIdent = identifier { "." identifier } .
+        tree.open(DeclTree.qualIdentNode, sym);
+        acceptLeaf(DeclTree.identNode, identifierSym, "identifier expected");
+        while (sym.kind == dotSym) {
+            getSym();
+            acceptLeaf(DeclTree.identNode, identifierSym, "identifier expected");
+        }
+        tree.close();
+    }
+
+    void Subrange() {
+        // Subrange = "[" Constant ".." Constant "]" .
+        tree.open(DeclTree.subrangeNode, sym);
+        SubrangeBounds();
+        tree.close();
+    }
+
+    void SubrangeBounds() {
+        // the body of Subrange, added to the subrange node that is open
+        accept(leftBracketSym, "[ expected");
+        Constant();
+        accept(rangeSym, ".. expected");
+        Constant();
+        accept(rightBracketSym, "] expected");
+    }
+
+    void Constant() {
+        // Constant = number | identifier .
+        if (constantFirst.contains(sym.kind))
+            tree.leaf(sym.kind == numberSym ? DeclTree.numberNode : DeclTree.identNode, sym);
+        accept(constantFirst, "number or identifier expected");
+    }
+
+    void Enumeration() {
+        // Enumeration = "(" IdentList ")" .
+        tree.open(DeclTree.enumerationNode, sym);
+        accept(leftParenSym, "( expected");
+        IdentList();
+        accept(rightParenSym, ") expected");
+        tree.close();
+    }
+
+    void IdentList() {
+        // IdentList = identifier { "," identifier } .
+        tree.open(DeclTree.identListNode, sym);
+        acceptLeaf(DeclTree.identNode, identifierSym, "identifier expected");
+        while (sym.kind == commaSym) {
+            getSym();
+            acceptLeaf(DeclTree.identNode, identifierSym, "identifier expected");
+        }
+        tree.close();
+    }
+
+    void ArrayType() {
+        // ArrayType = "ARRAY" SimpleType { "," SimpleType } "OF" Type.
+        tree.open(DeclTree.arrayTypeNode, sym);
+        accept(arraySym, "ARRAY expected");
+        SimpleType();
+        while (sym.kind == commaSym) {
+            getSym();
+            SimpleType();
+        }
+        accept(ofSym, "OF expected");
+        Type();
+        tree.close();
+    }
+
+    void RecordType() {
+        // RecordType = "RECORD" FieldLists "END" .
+        tree.open(DeclTree.recordTypeNode, sym);
+        accept(recordSym, "RECORD expected");
+        FieldLists();
+        accept(endSym, "END expected");
+        tree.close();
+    }
+
+    void FieldLists() {
+        // FieldLists = FieldList { SYNC ";" FieldList } .
+        FieldList();
+        synchronise(fieldSync, "; or END expected");
+        while (sym.kind == semicolonSym) {
+            getSym();
+            FieldList();
+            synchronise(fieldSync, "; or END expected");
+        }
+    }
+
+    void FieldList() {
+        // FieldList = [ IdentList ":" Type ] .
+        if (identListFirst.contains(sym.kind)) {
+            tree.open(DeclTree.fieldListNode, sym);
+            IdentList();
+            accept(colonSym, ": expected");
+            Type();
+            tree.close();
+        }
+    }
+
+    void SetType() {
+        // SetType = "SET" "OF" SimpleType .
+        tree.open(DeclTree.setTypeNode, sym);
+        accept(setSym, "SET expected");
+        accept(ofSym, "OF expected");
+        SimpleType();
+        tree.close();
+    }
+
+    void PointerType() {
+        // PointerType = "POINTER" "TO" Type .
+        tree.open(DeclTree.pointerTypeNode, sym);
+        accept(pointerSym, "POINTER expected");
+        accept(toSym, "TO expected");
+        Type();
+        tree.close();
+    }
+
+    // +++++++++++++++++++++ Table-driven parser ++++++++++++++++++++++++++++++++
+
+    // The methods above recurse on the Java stack, so a type nested thousands
+    // deep (POINTER TO POINTER TO ...) overflows it.  parseTable() parses the
+    // same grammar and builds the same tree, but keeps what it has still to
+    // match on a stack of its own on the heap.  The grammar is written out with
+    // the repetitions and options turned into productions of their own; a stack
+    // entry is a token kind to be matched, a nonterminal to be expanded, an
+    // action on the tree, or a SYNC point.  Where a nonterminal can be empty it
+    // expands to nothing on any token not chosen otherwise, just as the methods
+    // above fall through their loops and ifs, so the two report the same errors
+    // and recover in the same way
+
+    static final int NT = 64, OPEN = 128, LEAF = 160, WRAP = 192, CLOSE = 224, SYNC = 232;
+
+    static final TokenSet[] syncSets = { topSync, declSync, fieldSync };
+    static final String[] syncErrors = { "TYPE or VAR expected", "; expected", "; or END expected" };
+
+    static final int mod2DeclNT = NT, declsNT = NT + 1, declarationNT = NT + 2,
+            typeDeclsNT = NT + 3, varDeclsNT = NT + 4, typeDeclNT = NT + 5,
+            varDeclNT = NT + 6, typeNT = NT + 7, simpleTypeNT = NT + 8,
+            subrangeOptNT = NT + 9, qualIdentNT = NT + 10, qualRestNT = NT + 11,
+            subrangeNT = NT + 12, boundsNT = NT + 13, constantNT = NT + 14,
+            enumerationNT = NT + 15, identListNT = NT + 16, identRestNT = NT + 17,
+            arrayTypeNT = NT + 18, indexRestNT = NT + 19, recordTypeNT = NT + 20,
+            fieldListsNT = NT + 21, fieldListsRestNT = NT + 22, fieldListNT = NT + 23,
+            setTypeNT = NT + 24, pointerTypeNT = NT + 25, nonterminals = 26;
+
+    static final int ident = LEAF + DeclTree.identNode;
+
+    // each production is its left side followed by its right side; the set
+    // beside it holds the tokens that select it, or is null if it is the one
+    // taken on any other token
+
+    static final int[][] productions = {
+        { mod2DeclNT, OPEN + DeclTree.declsNode, declsNT, EOFSym, CLOSE },
+        { declsNT, declarationNT, declsNT },
+        { declsNT },
+        { declsNT, SYNC, declsNT },
+        { declarationNT, typeSym, typeDeclsNT },
+        { declarationNT, varSym, varDeclsNT },
+        { typeDeclsNT, typeDeclNT, SYNC + 1, semicolonSym, typeDeclsNT },
+        { typeDeclsNT },
+        { varDeclsNT, varDeclNT, SYNC + 1, semicolonSym, varDeclsNT },
+        { varDeclsNT },
+        { typeDeclNT, OPEN + DeclTree.typeDeclNode, ident, identifierSym, equalsSym, typeNT, CLOSE },
+        { varDeclNT, OPEN + DeclTree.varDeclNode, identListNT, colonSym, typeNT, CLOSE },
+        { typeNT, simpleTypeNT },
+        { typeNT, arrayTypeNT },
+        { typeNT, recordTypeNT },
+        { typeNT, setTypeNT },
+        { typeNT, pointerTypeNT },
+        { simpleTypeNT, enumerationNT },
+        { simpleTypeNT, subrangeNT },
+        { simpleTypeNT, qualIdentNT, subrangeOptNT },
+        { subrangeOptNT, WRAP + DeclTree.subrangeNode, boundsNT, CLOSE },
+        { subrangeOptNT },
+        { qualIdentNT, OPEN + DeclTree.qualIdentNode, ident, identifierSym, qualRestNT, CLOSE },
+        { qualRestNT, dotSym, ident, identifierSym, qualRestNT },
+        { qualRestNT },
+        { subrangeNT, OPEN + DeclTree.subrangeNode, boundsNT, CLOSE },
+        { boundsNT, leftBracketSym, constantNT, rangeSym, constantNT, rightBracketSym },
+        { constantNT, LEAF + DeclTree.numberNode, numberSym },
+        { constantNT, ident, identifierSym },
+        { enumerationNT, OPEN + DeclTree.enumerationNode, leftParenSym, identListNT, rightParenSym, CLOSE },
+        { identListNT, OPEN + DeclTree.identListNode, ident, identifierSym, identRestNT, CLOSE },
+        { identRestNT, commaSym, ident, identifierSym, identRestNT },
+        { identRestNT },
+        { arrayTypeNT, OPEN + DeclTree.arrayTypeNode, arraySym, simpleTypeNT, indexRestNT, ofSym, typeNT, CLOSE },
+        { indexRestNT, commaSym, simpleTypeNT, indexRestNT },
+        { indexRestNT },
+        { recordTypeNT, OPEN + DeclTree.recordTypeNode, recordSym, fieldListsNT, endSym, CLOSE },
+        { fieldListsNT, fieldListNT, SYNC + 2, fieldListsRestNT },
+        { fieldListsRestNT, semicolonSym, fieldListNT, SYNC + 2, fieldListsRestNT },
+        { fieldListsRestNT },
+        { fieldListNT, OPEN + DeclTree.fieldListNode, identListNT, colonSym, typeNT, CLOSE },
+        { fieldListNT },
+        { setTypeNT, OPEN + DeclTree.setTypeNode, setSym, ofSym, simpleTypeNT, CLOSE },
+        { pointerTypeNT, OPEN + DeclTree.pointerTypeNode, pointerSym, toSym, typeNT, CLOSE },
+    };
+
+    static final TokenSet[] selectors = {
+        null,
+        declarationFirst, new TokenSet(EOFSym), null,
+        new TokenSet(typeSym), new TokenSet(varSym),
+        typeDeclFirst, null,
+        varDeclFirst, null,
+        null,
+        null,
+        simpleTypeFirst, arrayTypeFirst, recordTypeFirst, setTypeFirst, pointerTypeFirst,
+        enumerationFirst, subrangeFirst, null,
+        subrangeFirst, null,
+        null,
+        new TokenSet(dotSym), null,
+        null,
+        null,
+        new TokenSet(numberSym), new TokenSet(identifierSym),
+        null,
+        null,
+        new TokenSet(commaSym), null,
+        null,
+        new TokenSet(commaSym), null,
+        null,
+        null,
+        new TokenSet(semicolonSym), null,
+        fieldListFirst, null,
+        null,
+        null,
+    };
+
+    static final int kinds = rangeSym + 1;
+    static final int[] predict = new int[nonterminals * kinds]; // production for nonterminal and token, or -1
+    static final String[] expected = new String[kinds]; // error message when a token is missing
+    static final String[] cannotStart = new String[nonterminals]; // ... and when no production fits
+
+    static {
+        Arrays.fill(predict, -1);
+        for (int p = 0; p < productions.length; p++) {
+            int row = (productions[p][0] - NT) * kinds;
+            for (int k = 0; k < kinds; k++)
+                if (selectors[p] == null ? predict[row + k] < 0 : selectors[p].contains(k))
+                    predict[row + k] = p;
+        }
+        int[] syms = { EOFSym, identifierSym, numberSym, typeSym, varSym, arraySym, recordSym, endSym,
+                setSym, ofSym, pointerSym, toSym, equalsSym, commaSym, semicolonSym, colonSym, dotSym,
+                leftBracketSym, rightBracketSym, leftParenSym, rightParenSym, starSym, rangeSym };
+        String[] words = { "EOF", "identifier", "number", "TYPE", "VAR", "ARRAY", "RECORD", "END",
+                "SET", "OF", "POINTER", "TO", "=", ",", ";", ":", ".",
+                "[", "]", "(", ")", "*", ".." };
+        for (int i = 0; i < syms.length; i++)
+            expected[syms[i]] = words[i] + " expected";
+        cannotStart[typeNT - NT] = "type expected";
+        cannotStart[constantNT - NT] = "number or identifier expected";
+    }
+
+    void parseTable() {
+        // parses from the goal symbol, as Mod2Decl() does, with an explicit stack
+        int[] stack = new int[256];
+        int top = 0;
+        stack[top++] = mod2DeclNT;
+        while (top > 0) {
+            int x = stack[--top];
+            if (x < NT) {
+                accept(x, expected[x]);
+            } else if (x < OPEN) {
+                int p = predict[(x - NT) * kinds + sym.kind];
+                if (p < 0) {
+                    synError(cannotStart[x - NT]);
+                    continue;
+                }
+                int[] rhs = productions[p];
+                if (top + rhs.length > stack.length)
+                    stack = Arrays.copyOf(stack, 2 * (top + rhs.length));
+                for (int i = rhs.length - 1; i > 0; i--)
+                    stack[top++] = rhs[i];
+            } else if (x < LEAF) {
+                tree.open(x - OPEN, sym);
+            } else if (x < WRAP) {
+                tree.leaf(x - LEAF, sym);
+            } else if (x < CLOSE) {
+                tree.wrap(x - WRAP);
+            } else if (x < SYNC) {
+                tree.close();
+            } else {
+                synchronise(syncSets[x - SYNC], syncErrors[x - SYNC]);
+            }
+        }
+    }
+
+    void parseInput() {
+        // parses the whole input, with the methods above or else with the
+        // table-driven parser
+        getSym(); // Lookahead symbol
+        if (table)
+            parseTable();
+        else
+            Mod2Decl(); // Start to parse from the goal symbol
+    }
+
+    // +++++++++++++++++++++ Parsing an input +++++++++++++++++++++++++++++++++++
+
+    // Whatever goes wrong in a parse is returned in its Result rather than
+    // ending the program
+
+    static class Result {
+        final String fileName; // or null if the input was not a file
+        final int errors; // syntax errors reported
+        final String failure; // why parsing was abandoned, or null
+        final List<String> messages; // diagnostics, in the order they were found
+        final DeclTree tree; // complete only if ok()
+
+        Result(String fileName, int errors, String failure, List<String> messages, DeclTree tree) {
+            this.fileName = fileName;
+            this.errors = errors;
+            this.failure = failure;
+            this.messages = messages;
+            this.tree = tree;
+        }
+
+        boolean ok() {
+            return errors == 0 && failure == null;
+        }
+    }
+
+    Result parse(Path file) {
+        // Parses file, writing the reflected listing alongside it
+        String fileName = file.toString();
+        reset();
+        if (file.toFile().length() > Integer.MAX_VALUE) { // positions are int offsets
+            messages.add(fileName + " is too large - inputs must be under 2 GB");
+            return new Result(fileName, 0, messages.get(0), messages, tree);
+        }
+        try {
+            input = new InFile(fileName, mapped);
+        } catch (InFileException e) { // reading the first block may already fail
+            messages.add(e.getMessage());
+            return new Result(fileName, 0, e.getMessage(), messages, tree);
+        }
+        if (input.openError()) { // InFile would otherwise read standard input instead
+            messages.add("Could not open " + fileName);
+            return new Result(fileName, 0, "Could not open " + fileName, messages, tree);
+        }
+        echo = input.buffer() == null || !zeroCopy;
+        // the reflected listing is only flushed when an error is reported (and on
+        // close), and is written in Latin-1 as the input is read, so that echoing
+        // it gives the same bytes as copying them
+        if (listing) {
+            String listed = newFileName(fileName, ".out");
+            output = new OutFile(listed, OutFile.FLUSH_ON_ERROR, StandardCharsets.ISO_8859_1);
+            if (output.openError()) { // OutFile would otherwise write to standard output,
+                output = null; // which must not be closed after the parse
+                input.close();
+                messages.add("Could not open listing " + listed);
+                return new Result(fileName, 0, "Could not open listing " + listed, messages, tree);
+            }
+        }
+        try {
+            return run(fileName, null);
+        } finally {
+            input.close();
+        }
+    }
+
+    Result parse(ByteBuffer source) {
+        // Parses the bytes of source from its position to its limit, taking each
+        // as a Latin-1 character as InFile does.  Positions in the messages and
+        // the tree are counted from source's position
+        return parse(source, null);
+    }
+
+    Result parse(ByteBuffer source, OutFile listing) {
+        // As above, also writing the reflected listing to listing (if it is not
+        // null), which is flushed but left open
+        reset();
+        text = source.slice();
+        output = listing;
+        return run(null, text);
+    }
+
+    Result parse(CharSequence text) {
+        // Parses text, which should hold Latin-1 characters only
+        return parse(StandardCharsets.ISO_8859_1.encode(CharBuffer.wrap(text)));
+    }
+
+    void reset() {
+        // Discards everything left from the previous parse
+        errorCount = 0;
+        errDist = minErrDist;
+        errorPos.clear();
+        errorText.clear();
+        messages = new ArrayList<>(); // the last one belongs to its Result
+        tree = new DeclTree();
+        sym = new Token();
+        input = null;
+        text = null;
+        output = null;
+        echo = false;
+        droppedCR = false;
+        scanner = null;
+        ring = null;
+        chunks = null;
+    }
+
+    Result run(String fileName, ByteBuffer source) {
+        // Parses source, or input if source is null
+        String failure = null;
+        try {
+            // priming the lookahead character may already fail to read input
+            scanner = source != null ? new DeclScanner(source, 0) : new DeclScanner(input, output);
+            ByteBuffer bytes = source != null ? source : input.buffer();
+            // when the listing is not echoed the scanner never writes to output,
+            // so it may run on other threads; if there is only one processor to
+            // run them, scan as usual
+            if (pipelined && !echo && Runtime.getRuntime().availableProcessors() > 1)
+                ring = TokenRing.start(scanner, 4096, 256);
+            else if (parallel && !echo && Runtime.getRuntime().availableProcessors() > 1)
+                chunks = new ParallelScan(bytes, chunkSize);
+
+            // To test the scanner we can use a loop like the following:
+
+            // do {
+            // getSym(); // Lookahead symbol
+            // OutFile.StdOut.write(sym.kind, 3);
+            // OutFile.StdOut.writeLine(" " + sym.val());
+            // } while (sym.kind != EOFSym);
+
+            parseInput();
+        } catch (ParseAbort e) {
+            failure = e.getMessage(); // already reported
+        } catch (InFileException e) {
+            failure = e.getMessage();
+            messages.add(failure);
+        } finally {
+            if (ring != null)
+                ring.cancel(); // in case parsing stopped before EOF
+            if (chunks != null)
+                chunks.cancel(); // likewise, so that the chunks ahead stop scanning
+            if (output != null) {
+                if (scanner != null)
+                    finishListing();
+                if (input != null)
+                    output.close();
+                else
+                    output.flush(); // the caller's to close
+            }
+        }
+        return new Result(fileName, errorCount, failure, messages, tree);
+    }
+
+} // Mod2DeclParser
@@ -0,0 +1,352 @@
+// by R. Malope, T. Coutts, K. Lesese, H. Chagaluka, 2025
+
+// Keeps Mod2DeclParser resident, so that checking a small file costs a request
+// over a local socket instead of starting a JVM, loading library and running
+// the parser before it has been compiled.  Address is the path of a Unix-domain
+// socket, or a port number on the loopback interface.  The parser is warmed up
+// on a sample before the first request is taken, and requests are served by a
+// pool of worker threads, each with a Mod2DeclParser of its own.
+//
+// A connection carries one request, a line of UTF-8 text (the reply is UTF-8
+// as well)
+//
+//   PARSE [-s] [-l] FileName     parses the named file, as seen by the server,
+//                                writing its listing beside it as Mod2decl4 does
+//                                (FileName is the rest of the line, spaces and all)
+//   PARSE [-s] [-l] -            parses the rest of the input (sent until the
+//                                client shuts down its side of the connection)
+//   STATS                        reports on the cache of results
+//   STOP                         closes the server once busy requests are done
+//
+// -s parses with the table-driven parser, and -l returns the reflected listing
+// as well.  The reply is a line "ok", "errors" or "abandoned", then what
+// Mod2decl4 would have written to standard output, then (if asked for) a line
+// "-- listing" followed by the listing.  Mod2Client sends requests; so can nc.
+//
+// Files are mostly checked again unchanged, so the replies and listings are
+// kept in a cache, keyed by a hash of the text: a text seen before is answered
+// (and its listing written) without being parsed again.
+//
+// The server reads each file itself, once, and parses the bytes it read, so
+// Mod2decl4's -m and -z have no meaning here
+//
+// -s is as for Mod2decl4, and applies to every request
+// -w sets the number of worker threads (the number of processors by default)
+// -c sets the size of the cache in megabytes (64 by default; 0 for none)
+//
+// Usage: java Mod2Server [-s] [-w Workers] [-c Megabytes] Address
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import library.*;
+
+class Mod2Server {
+
+    static boolean table;
+
+    static final ThreadLocal<Mod2DeclParser> parsers = ThreadLocal.withInitial(Mod2DeclParser::new);
+
+    static ServerSocketChannel listen(String address) throws IOException {
+        // opens the Unix-domain socket at path address, or the loopback port
+        // address if that is a number
+        if (address.matches("\\d+")) {
+            ServerSocketChannel server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address)));
+            return server;
+        }
+        Path path = Paths.get(address);
+        Files.deleteIfExists(path); // left behind by a server that did not stop cleanly
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(path));
+        path.toFile().deleteOnExit();
+        return server;
+    }
+
+    static void warmUp() {
+        // parses a sample often enough for the parser to be compiled
+        StringBuilder sb = new StringBuilder();
+        sb.append("TYPE\n")
+          .append("  Colours = ( red, orange, yellow, green, blue, indigo, violet);\n")
+          .append("  SmallInts = [ 1 .. 31 ];\n")
+          .append("  Persons = RECORD Name : ARRAY [0 .. 10] OF CHAR; Age : INTEGER END;\n")
+          .append("VAR\n")
+          .append("  I, J, K : Exported.Type;\n")
+          .append("  Dynamic : POINTER TO ARRAY [ 1 .. 100] OF INTEGER;\n")
+          .append("  Sieve : SET OF [ 0 .. 4000 ];\n")
+          .append("  Wrong : ARRAY OF ;\n");
+        ByteBuffer sample = StandardCharsets.ISO_8859_1.encode(sb.toString());
+        Mod2DeclParser p = new Mod2DeclParser();
+        for (int i = 0; i < 5000; i++) {
+            p.table = (i & 1) != 0;
+            p.parse(sample);
+        }
+    }
+
+    // +++++++++++++++++++++++++ Cache of results ++++++++++++++++++++++++++++++++
+
+    // A text is known by a 64 bit hash of its bytes together with its length,
+    // so two texts are only confused if both of those agree - a chance too
+    // small to matter.  The entries are kept in order of use, and the least
+    // recently used are evicted once they take more than the budget
+
+    static final class Key {
+        final long hash;
+        final int length, mode; // mode: 1 if parsed by the table-driven parser
+
+        Key(long hash, int length, int mode) {
+            this.hash = hash;
+            this.length = length;
+            this.mode = mode;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return hash == k.hash && length == k.length && mode == k.mode;
+        }
+
+        public int hashCode() {
+            return (int) (hash ^ hash >>> 32);
+        }
+    }
+
+    static final class Entry {
+        final String reply, listing;
+
+        Entry(String reply, String listing) {
+            this.reply = reply;
+            this.listing = listing;
+        }
+
+        long size() {
+            // roughly the bytes the entry holds on to
+            return 2L * (reply.length() + (listing == null ? 0 : listing.length())) + 128;
+        }
+    }
+
+    static final class ResultCache {
+        final long budget; // in bytes
+        final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+        long used, hits, misses, evictions;
+
+        ResultCache(long budget) {
+            this.budget = budget;
+        }
+
+        synchronized Entry get(Key k) {
+            Entry e = entries.get(k);
+            if (e != null)
+                hits++;
+            else
+                misses++;
+            return e;
+        }
+
+        synchronized void put(Key k, Entry e) {
+            if (e.size() > budget)
+                return;
+            Entry old = entries.put(k, e);
+            used += e.size() - (old == null ? 0 : old.size());
+            Iterator<Entry> it = entries.values().iterator(); // least recently used first
+            while (used > budget) {
+                used -= it.next().size();
+                it.remove();
+                evictions++;
+            }
+        }
+
+        synchronized String stats() {
+            return "hits " + hits + ", misses " + misses + ", evictions " + evictions + ", " + entries.size()
+                    + " entries, " + used + " of " + budget + " bytes\n";
+        }
+    }
+
+    static ResultCache cache;
+
+    static long hash(ByteBuffer b) {
+        // hashes the bytes of b from 0 to its limit, eight at a time
+        b = b.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int n = b.limit(), i = 0;
+        long h = 0x9E3779B97F4A7C15L ^ n;
+        for (; i + 8 <= n; i += 8)
+            h = Long.rotateLeft((h ^ mix(b.getLong(i))) * 0x9E3779B97F4A7C15L, 29);
+        long tail = 0;
+        for (; i < n; i++)
+            tail = tail << 8 | b.get(i) & 0xFF;
+        return mix(h ^ mix(tail));
+    }
+
+    static long mix(long x) {
+        // scatters the bits of x (the finaliser of MurmurHash3)
+        x = (x ^ x >>> 33) * 0xFF51AFD7ED558CCDL;
+        x = (x ^ x >>> 33) * 0xC4CEB9FE1A85EC53L;
+        return x ^ x >>> 33;
+    }
+
+    // +++++++++++++++++++++++++ Serving a request +++++++++++++++++++++++++++++++
+
+    static String readLine(InputStream in) throws IOException {
+        // reads a line of UTF-8 text, without its end
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n')
+            if (c != '\r')
+                line.write(c);
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    static boolean serve(SocketChannel client) throws IOException {
+        // answers one request; returns false if it was STOP
+        InputStream in = new BufferedInputStream(Channels.newInputStream(client));
+        Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(client),
+                StandardCharsets.UTF_8));
+        // the command is the first word; the file name is whatever is left of
+        // the line after the options, spaces and all
+        String[] words = readLine(in).trim().split("\\s+", 2);
+        String command = words[0];
+        if (command.equals("STOP") || command.equals("STATS")) {
+            out.write(command.equals("STOP") ? "stopping\n" : "ok\n");
+            out.write(cache != null ? "cache: " + cache.stats() : "no cache\n");
+            out.flush();
+            return !command.equals("STOP");
+        }
+        boolean withTable = table, withListing = false;
+        String fileName = words.length > 1 ? words[1] : "";
+        for (words = fileName.split("\\s+", 2); words.length > 1
+                && (words[0].equals("-s") || words[0].equals("-l")); words = fileName.split("\\s+", 2)) {
+            if (words[0].equals("-s"))
+                withTable = true;
+            else
+                withListing = true;
+            fileName = words[1];
+        }
+        if (!command.equals("PARSE") || fileName.isEmpty()) {
+            out.write("abandoned\nUsage: PARSE [-s] [-l] FileName|-  or  STATS  or  STOP\n");
+            out.flush();
+            return true;
+        }
+        Entry e;
+        try {
+            e = fileName.equals("-") ? parse(in.readAllBytes(), withTable)
+                    : parse(Paths.get(fileName), withTable);
+        } catch (StackOverflowError x) {
+            e = new Entry("abandoned\nTypes nested too deeply - try -s\n", null);
+        }
+        out.write(e.reply);
+        if (withListing && e.listing != null)
+            out.write("-- listing\n" + e.listing);
+        out.flush();
+        return true;
+    }
+
+    static String reply(Mod2DeclParser.Result r) {
+        // the status line, and what Mod2decl4 would write to standard output
+        StringBuilder sb = new StringBuilder();
+        sb.append(r.ok() ? "ok\n" : r.failure == null ? "errors\n" : "abandoned\n");
+        for (String message : r.messages)
+            sb.append(message).append('\n');
+        if (r.errors > 0)
+            sb.append(r.errors).append(r.errors == 1 ? " error" : " errors").append(" found\n");
+        else if (r.failure == null)
+            sb.append("Parsed correctly\n");
+        return sb.toString();
+    }
+
+    static Entry parse(byte[] text, boolean withTable) {
+        // parses text, unless it is in the cache
+        ByteBuffer source = ByteBuffer.wrap(text);
+        Key k = cache == null ? null : new Key(hash(source), text.length, withTable ? 1 : 0);
+        Entry e = k == null ? null : cache.get(k);
+        if (e != null)
+            return e;
+        Mod2DeclParser parser = parsers.get();
+        parser.table = withTable;
+        StringWriter sw = new StringWriter();
+        OutFile listing = new OutFile(new PrintWriter(sw));
+        String reply = reply(parser.parse(source, listing));
+        listing.close();
+        e = new Entry(reply, sw.toString());
+        if (k != null)
+            cache.put(k, e);
+        return e;
+    }
+
+    static Entry parse(Path file, boolean withTable) {
+        // parses the text of file (unless it is in the cache), and writes its
+        // listing beside it.  The file is read just once, so that the reply, the
+        // listing and the cache entry all belong to the same text
+        byte[] text;
+        try {
+            if (Files.size(file) > Integer.MAX_VALUE)
+                return new Entry("abandoned\n" + file + " is too large - inputs must be under 2 GB\n", null);
+            text = Files.readAllBytes(file);
+        } catch (IOException x) {
+            return new Entry("abandoned\nCould not open " + file + "\n", null);
+        }
+        Entry e = parse(text, withTable);
+        Path listed = Paths.get(Mod2DeclParser.newFileName(file.toString(), ".out"));
+        try {
+            Files.write(listed, e.listing.getBytes(StandardCharsets.ISO_8859_1));
+        } catch (IOException x) {
+            return new Entry("abandoned\nCould not open listing " + listed + "\n", e.listing);
+        }
+        return e;
+    }
+
+    // +++++++++++++++++++++ Main driver function +++++++++++++++++++++++++++++++
+
+    public static void main(String[] args) throws Exception {
+        int workers = Runtime.getRuntime().availableProcessors();
+        long cacheSize = 64;
+        String address = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-s"))
+                table = true;
+            else if (arg.equals("-w") && i + 1 < args.length)
+                workers = Math.max(1, Integer.parseInt(args[++i]));
+            else if (arg.equals("-c") && i + 1 < args.length)
+                cacheSize = Math.max(0, Long.parseLong(args[++i]));
+            else if (!arg.startsWith("-"))
+                address = arg;
+        }
+        if (address == null) {
+            System.out.println("Usage: Mod2Server [-s] [-w Workers] [-c Megabytes] Address");
+            System.exit(1);
+        }
+        ServerSocketChannel server = listen(address);
+        warmUp();
+        if (cacheSize > 0)
+            cache = new ResultCache(cacheSize << 20);
+        System.out.println("Mod2Server listening on " + address);
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        while (server.isOpen()) {
+            SocketChannel client;
+            try {
+                client = server.accept();
+            } catch (ClosedChannelException e) {
+                break; // closed by STOP
+            }
+            pool.execute(() -> {
+                try (SocketChannel c = client) {
+                    if (!serve(c))
+                        server.close();
+                } catch (IOException | RuntimeException e) {
+                    System.out.println("Mod2Server: request failed - " + e);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.println("Mod2Server stopped" + (cache != null ? " - cache: " + cache.stats().trim() : ""));
+    }
+
+} // Mod2Server
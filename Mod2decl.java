@@ -6,16 +6,16 @@
 import java.util.*;
 import library.*;
 
-class Token {
+class Mod2declToken {
   public int kind;
   public String val;
 
-  public Token(int kind, String val) {
+  public Mod2declToken(int kind, String val) {
     this.kind = kind;
     this.val = val;
   }
 
-} // Token
+} // Mod2declToken
 
 class Mod2decl {
 
@@ -82,7 +82,7 @@ class Mod2decl {
   // Declaring sym as a global variable is done for expediency - global variables
   // are not always a good thing
 
-  static Token sym;
+  static Mod2declToken sym;
 
   static void getSym() {
     // Scans for next sym from input
@@ -93,7 +93,7 @@ class Mod2decl {
 
     // over to you!
 
-    sym = new Token(symKind, symLex.toString());
+    sym = new Mod2declToken(symKind, symLex.toString());
   } // getSym
 
   /*
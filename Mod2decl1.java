@@ -6,17 +6,6 @@
 import java.util.*;
 import library.*;
 
-class Token {
-  public int kind;
-  public String val;
-
-  public Token(int kind, String val) {
-    this.kind = kind;
-    this.val = val;
-  }
-
-} // Token
-
 class Mod2decl1 {
 
   // +++++++++++++++++++++++++ File Handling and Error handlers
@@ -49,209 +38,51 @@ class Mod2decl1 {
 
   // +++++++++++++++++++++++ token kinds enumeration +++++++++++++++++++++++++
 
-  static final int noSym = 0,
-      EOFSym = 1,
-      identifierSym = 2,
-      numberSym = 3,
-      typeSym = 4,
-      varSym = 5,
-      arraySym = 6,
-      recordSym = 7,
-      endSym = 8,
-      setSym = 9,
-      ofSym = 10,
-      pointerSym = 11,
-      toSym = 12,
-      equalsSym = 13,
-      commaSym = 14,
-      semicolonSym = 15,
-      colonSym = 16,
-      dotSym = 17,
-      leftBracketSym = 18,
-      rightBracketSym = 19,
-      leftParenSym = 20,
-      rightParenSym = 21,
-      starSym = 22;
-  // and others like this
-
-  // +++++++++++++++++++++++++++++ Character Handler ++++++++++++++++++++++++++
+  // These are the kinds delivered by the generated scanner - see
+  // library/DeclScanner.atg
+
+  static final int noSym = DeclScanner.noSym,
+      EOFSym = DeclScanner.EOFSym,
+      identifierSym = DeclScanner.identifierSym,
+      numberSym = DeclScanner.numberSym,
+      typeSym = DeclScanner.typeSym,
+      varSym = DeclScanner.varSym,
+      arraySym = DeclScanner.arraySym,
+      recordSym = DeclScanner.recordSym,
+      endSym = DeclScanner.endSym,
+      setSym = DeclScanner.setSym,
+      ofSym = DeclScanner.ofSym,
+      pointerSym = DeclScanner.pointerSym,
+      toSym = DeclScanner.toSym,
+      equalsSym = DeclScanner.equalsSym,
+      commaSym = DeclScanner.commaSym,
+      semicolonSym = DeclScanner.semicolonSym,
+      colonSym = DeclScanner.colonSym,
+      dotSym = DeclScanner.dotSym,
+      leftBracketSym = DeclScanner.leftBracketSym,
+      rightBracketSym = DeclScanner.rightBracketSym,
+      leftParenSym = DeclScanner.leftParenSym,
+      rightParenSym = DeclScanner.rightParenSym,
+      starSym = DeclScanner.starSym,
+      rangeSym = DeclScanner.rangeSym;
 
-  static final char EOF = '\0';
-  static boolean atEndOfFile = false;
+  // +++++++++++++++++++++++++++++++ Scanner ++++++++++++++++++++++++++++++++++
 
-  // Declaring ch as a global variable is done for expediency - global variables
-  // are not always a good thing
+  // The scanner is generated by ScanGen from library/DeclScanner.atg, and is
+  // shared by all the Mod2decl programs
 
-  static char ch; // look ahead character for scanner
-
-  static void getChar() {
-    // Obtains next character ch from input, or CHR(0) if EOF reached
-    // Reflect ch to output
-    if (atEndOfFile)
-      ch = EOF;
-    else {
-      ch = input.readChar();
-      atEndOfFile = ch == EOF;
-      if (!atEndOfFile)
-        output.write(ch);
-    }
-  } // getChar
-
-  // +++++++++++++++++++++++++++++++ Scanner ++++++++++++++++++++++++++++++++++
+  static DeclScanner scanner;
 
   // Declaring sym as a global variable is done for expediency - global variables
   // are not always a good thing
 
-  static Token sym;
+  static Token sym = new Token();
 
   static void getSym() {
     // Scans for next sym from input
-    while (ch > EOF && ch <= ' ')
-      getChar();
-    StringBuilder symLex = new StringBuilder();
-    int symKind = noSym;
-
-    if (ch == EOF) {
-      symKind = EOFSym;
-    }
-    // Handle identifiers and keywords
-    else if (Character.isLetter(ch)) {
-      while (Character.isLetterOrDigit(ch)) {
-        symLex.append(ch);
-        getChar();
-      }
-      String ident = symLex.toString();
-      // Check for keywords
-      switch (ident) {
-        case "TYPE":
-          symKind = typeSym;
-          break;
-        case "VAR":
-          symKind = varSym;
-          break;
-        case "ARRAY":
-          symKind = arraySym;
-          break;
-        case "RECORD":
-          symKind = recordSym;
-          break;
-        case "END":
-          symKind = endSym;
-          break;
-        case "SET":
-          symKind = setSym;
-          break;
-        case "OF":
-          symKind = ofSym;
-          break;
-        case "POINTER":
-          symKind = pointerSym;
-          break;
-        case "TO":
-          symKind = toSym;
-          break;
-        default:
-          symKind = identifierSym;
-          break;
-      }
-    }
-    // Handle numbers
-    else if (Character.isDigit(ch)) {
-      while (Character.isDigit(ch)) {
-        symLex.append(ch);
-        getChar();
-      }
-      symKind = numberSym;
-    }
-
-    // Handle comments
-    else if (ch == '(') {
-      getChar();
-      if (ch == '*') {
-        // It's a comment, skip until *)
-        getChar();
-        while (true) {
-          if (ch == '*') {
-            getChar();
-            if (ch == ')') {
-              getChar();
-              break;
-            }
-          } else if (ch == EOF) {
-            abort("Unterminated comment");
-          } else {
-            getChar();
-          }
-        }
-        // Recursively call getSym to get next token after comment
-        getSym();
-        return;
-      } else {
-        // It's just a '(' symbol
-        symLex.append('(');
-        symKind = leftParenSym;
-        getChar();
-      }
-    }
-    // Handle other symbols
-    else {
-      switch (ch) {
-        case '=':
-          symKind = equalsSym;
-          symLex.append(ch);
-          getChar();
-          break;
-        case ',':
-          symKind = commaSym;
-          symLex.append(ch);
-          getChar();
-          break;
-        case ';':
-          symKind = semicolonSym;
-          symLex.append(ch);
-          getChar();
-          break;
-        case ':':
-          symKind = colonSym;
-          symLex.append(ch);
-          getChar();
-          break;
-        case '.':
-          symKind = dotSym;
-          symLex.append(ch);
-          getChar();
-          break;
-        case '[':
-          symKind = leftBracketSym;
-          symLex.append(ch);
-          getChar();
-          break;
-        case ']':
-          symKind = rightBracketSym;
-          symLex.append(ch);
-          getChar();
-          break;
-        case '(':
-          symKind = leftParenSym;
-          symLex.append(ch);
-          getChar();
-          break;
-        case ')':
-          symKind = rightParenSym;
-          symLex.append(ch);
-          getChar();
-          break;
-        case '*':
-          symKind = starSym;
-          symLex.append(ch);
-          getChar();
-          break;
-        default:
-          abort("Invalid character '" + ch + "'");
-      }
-    }
-
-    sym = new Token(symKind, symLex.toString());
+    scanner.next(sym);
+    if (sym.kind == noSym)
+      abort(scanner.error());
   } // getSym
 
   /*
@@ -283,14 +114,14 @@ class Mod2decl1 {
     input = new InFile(args[0]);
     output = new OutFile(newFileName(args[0], ".out"));
 
-    getChar(); // Lookahead character
+    scanner = new DeclScanner(input, output); // primes the lookahead character
 
     // To test the scanner we can use a loop like the following:
 
     do {
       getSym(); // Lookahead symbol
       OutFile.StdOut.write(sym.kind, 3);
-      OutFile.StdOut.writeLine(" " + sym.val);
+      OutFile.StdOut.writeLine(" " + sym.val());
     } while (sym.kind != EOFSym);
 
     /*
@@ -0,0 +1,153 @@
+// by R. Malope, T. Coutts, K. Lesese, H. Chagaluka, 2025
+
+// Checks that Mod2DeclParser gives the same answer however it reads its
+// input - through InFile, memory mapped, with the listing copied, pipelined
+// through a TokenRing, scanned in parallel chunks (made tiny, so that many
+// are stitched together), or with the table-driven parser - on the decl*.txt
+// files and on random mutations of them.  The answers compared are the
+// messages, the reflected listing, and the whole tree, names and values
+// included.  Each parse is given
+// a time limit, so that a mode that hangs is reported rather than hanging the
+// check.  The pipelined and parallel modes only run other threads when there
+// is more than one processor, so on a machine with one the count must be
+// raised:
+//
+// Usage: java -XX:ActiveProcessorCount=4 ModeCheck [Mutations] [Seed]
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import library.*;
+
+class ModeCheck {
+
+    static final String[] modes = { "", "-m", "-z", "-p", "-j", "-s", "-p -s", "-j -s" };
+
+    static ExecutorService runner = newRunner();
+
+    static ExecutorService newRunner() {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "parse");
+            t.setDaemon(true); // a parse that hangs must not keep the check alive
+            return t;
+        });
+    }
+
+    static String parse(File f, String mode) {
+        // parses f in mode, and describes the outcome
+        Mod2DeclParser p = new Mod2DeclParser();
+        p.mapped = !mode.isEmpty() && !mode.equals("-s");
+        p.zeroCopy = mode.contains("-z") || mode.contains("-p") || mode.contains("-j");
+        p.pipelined = mode.contains("-p");
+        p.parallel = mode.contains("-j");
+        p.chunkSize = 16;
+        p.table = mode.contains("-s");
+        Future<Mod2DeclParser.Result> future = runner.submit(() -> p.parse(f.toPath()));
+        try {
+            return describe(future.get(10, TimeUnit.SECONDS)) + listing(f);
+        } catch (TimeoutException e) {
+            runner.shutdownNow(); // abandon the hung thread
+            runner = newRunner();
+            return "hung";
+        } catch (InterruptedException | ExecutionException e) {
+            return "failed: " + e.getCause();
+        }
+    }
+
+    static String describe(Mod2DeclParser.Result r) {
+        // the messages and counts of r, and its tree if it is complete
+        StringWriter tree = new StringWriter();
+        if (r.ok()) {
+            OutFile out = new OutFile(new PrintWriter(tree));
+            r.tree.write(out);
+            out.close();
+        }
+        return r.errors + " " + r.failure + " " + r.messages + "\n" + tree;
+    }
+
+    static String listing(File f) {
+        // the listing written for f, which is then removed
+        Path listed = Paths.get(Mod2DeclParser.newFileName(f.getPath(), ".out"));
+        try {
+            String text = new String(Files.readAllBytes(listed), "ISO-8859-1");
+            Files.delete(listed);
+            return "-- listing\n" + text;
+        } catch (IOException e) {
+            return "-- no listing";
+        }
+    }
+
+    static int checked, bad;
+
+    static void check(File f, String text) {
+        // parses f in every mode, and reports any that disagree with InFile
+        String expected = parse(f, modes[0]);
+        for (int m = 1; m < modes.length; m++) {
+            String got = parse(f, modes[m]);
+            checked++;
+            if (!got.equals(expected) && bad++ < 10) {
+                System.out.println("MISMATCH in mode " + modes[m] + " for " + f.getName()
+                        + (text != null ? ":\n" + text : ""));
+                System.out.println("  InFile: " + expected);
+                System.out.println("  " + modes[m] + ": " + got);
+            }
+        }
+    }
+
+    static String mutate(String text, Random rnd) {
+        // makes a few random edits to text - characters dropped, doubled or
+        // replaced by one of the characters that matter to the scanner (including
+        // CRs, and bytes beyond ASCII that a wrong charset would misread)
+        String alphabet = " \n\r.;:,=()[]*{}0129ABCHTYPEVRab\u00c3\u00a9";
+        StringBuilder sb = new StringBuilder(text);
+        for (int edits = 1 + rnd.nextInt(4); edits > 0 && sb.length() > 0; edits--) {
+            int i = rnd.nextInt(sb.length());
+            switch (rnd.nextInt(3)) {
+                case 0:
+                    sb.deleteCharAt(i);
+                    break;
+                case 1:
+                    sb.insert(i, sb.charAt(i));
+                    break;
+                default:
+                    sb.setCharAt(i, alphabet.charAt(rnd.nextInt(alphabet.length())));
+            }
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int mutations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        Random rnd = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+        if (Runtime.getRuntime().availableProcessors() < 2) {
+            System.out.println("ModeCheck needs more than one processor to run the pipelined and parallel modes -");
+            System.out.println("try java -XX:ActiveProcessorCount=4 ModeCheck");
+            System.exit(1);
+        }
+        File[] inputs = new File(".").listFiles((dir, name) -> name.matches("decl\\d+\\.txt"));
+        Arrays.sort(inputs);
+        for (File f : inputs) {
+            // a copy, so that the listings beside the originals are left alone
+            File copy = File.createTempFile(f.getName().replace(".txt", ""), ".txt");
+            copy.deleteOnExit();
+            Files.copy(f.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            check(copy, null);
+        }
+        for (int i = 0; i < mutations; i++) {
+            // a new file each time, as chunks still being scanned after a parse
+            // was abandoned may yet be reading the last one
+            File scratch = File.createTempFile("modecheck", ".txt");
+            scratch.deleteOnExit();
+            String source = new String(Files.readAllBytes(inputs[rnd.nextInt(inputs.length)].toPath()),
+                    "ISO-8859-1");
+            String text = mutate(source, rnd);
+            Files.write(scratch.toPath(), text.getBytes("ISO-8859-1"));
+            check(scratch, text);
+        }
+        System.out.println(checked + " parses checked, " + bad + " mismatches");
+        if (bad > 0)
+            System.exit(1);
+    }
+
+} // ModeCheck
@@ -0,0 +1,75 @@
+// by R. Malope, T. Coutts, K. Lesese, H. Chagaluka, 2025
+
+// Times the recursive descent parser of Mod2DeclParser against its table-driven
+// parser - on many ordinary declarations, and on types nested very deeply
+// (POINTER TO ... ARRAY OF RECORD ...), which overflow the Java stack of the
+// recursive descent parser long before they trouble the table-driven one.
+//
+// Usage: java ParseBench [Repeats]
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import library.*;
+
+class ParseBench {
+
+    static void time(String name, File f, boolean table, int repeats) throws IOException {
+        // parses f repeatedly, and reports the best time taken
+        ByteBuffer source = ByteBuffer.wrap(Files.readAllBytes(f.toPath()));
+        Mod2DeclParser parser = new Mod2DeclParser();
+        parser.table = table;
+        Mod2DeclParser.Result result = null;
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < repeats; r++) {
+            long start = System.nanoTime();
+            try {
+                result = parser.parse(source);
+            } catch (StackOverflowError e) {
+                System.out.printf("%-10s %-9s stack overflow%n", name, table ? "table" : "recursive");
+                return;
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-10s %-9s %8d bytes %8d nodes %8.2f ms%n", name, table ? "table" : "recursive",
+                f.length(), result.tree.size(), best / 1e6);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int repeats = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+        // the declarations of decl2.txt over and over
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+            sb.append("TYPE\n")
+              .append("  Colours = ( red, orange, yellow, green, blue, indigo, violet);\n")
+              .append("  FirstColours = Colours [ red .. orange ];\n")
+              .append("  SmallInts = [ 1 .. 31 ];\n")
+              .append("  Persons = RECORD\n")
+              .append("              Name, Surname : ARRAY [0 .. 10] OF CHAR;\n")
+              .append("              Age : INTEGER;\n")
+              .append("            END;\n")
+              .append("VAR\n")
+              .append("  I, J, K : Exported.Type;\n")
+              .append("  Dynamic : POINTER TO ARRAY [ 1 .. 100] OF INTEGER;\n")
+              .append("  Sieve : SET OF [ 0 .. 4000 ];\n");
+        File wide = CommentBench.makeInput("wide", sb.toString());
+
+        // one type nested 100000 deep
+        sb.setLength(0);
+        sb.append("TYPE\n  T = ");
+        for (int i = 0; i < 25000; i++)
+            sb.append("POINTER TO ARRAY [0 .. 1] OF RECORD f : POINTER TO ");
+        sb.append("INTEGER");
+        for (int i = 0; i < 25000; i++)
+            sb.append(" END");
+        sb.append(";\n");
+        File deep = CommentBench.makeInput("deep", sb.toString());
+
+        for (boolean table : new boolean[] { false, true }) {
+            time("wide", wide, table, repeats);
+            time("deep", deep, table, repeats);
+        }
+    } // main
+
+} // ParseBench
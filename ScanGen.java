@@ -0,0 +1,493 @@
+// by R. Malope, T. Coutts, K. Lesese, H. Chagaluka, 2025
+
+// This is a small scanner generator in the spirit of Coco/R.  It reads a token
+// specification (see library/DeclScanner.atg), builds a DFA over classes of
+// characters and writes the tables and the token kinds into a frame file, which
+// holds the driver loop, to produce the source of the scanner.
+//
+// Usage: java ScanGen Specification Frame Output
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+class ScanGen {
+
+    // +++++++++++++++++++++++++ Reading the specification +++++++++++++++++++
+
+    static List<String> items = new ArrayList<>(); // lexical items of the specification
+    static int next; // index of the next item
+
+    static void abort(String errorMessage) {
+        // Abandons generation after issuing error message
+        System.out.println("ScanGen: " + errorMessage);
+        System.exit(1);
+    }
+
+    static void split(String text) {
+        // breaks text into names, numbers, strings and symbols, dropping // comments
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c <= ' ')
+                i++;
+            else if (text.startsWith("//", i))
+                while (i < text.length() && text.charAt(i) != '\n')
+                    i++;
+            else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < text.length() && Character.isLetterOrDigit(text.charAt(i)))
+                    i++;
+                items.add(text.substring(start, i));
+            } else if (c == '"') {
+                int end = text.indexOf('"', i + 1);
+                if (end < 0)
+                    abort("unterminated string");
+                items.add(text.substring(i, end + 1));
+                i = end + 1;
+            } else if (text.startsWith("..", i)) {
+                items.add("..");
+                i += 2;
+            } else {
+                items.add(String.valueOf(c));
+                i++;
+            }
+        }
+    }
+
+    static String peek() {
+        return next < items.size() ? items.get(next) : "";
+    }
+
+    static String take() {
+        if (next >= items.size())
+            abort("unexpected end of specification");
+        return items.get(next++);
+    }
+
+    static void expect(String item) {
+        if (!take().equals(item))
+            abort(item + " expected near item " + next);
+    }
+
+    static boolean isString(String item) {
+        return item.startsWith("\"");
+    }
+
+    static boolean isSection(String item) {
+        return item.equals("CHARACTERS") || item.equals("TOKENS") || item.equals("COMMENTS")
+                || item.equals("IGNORE") || item.equals("");
+    }
+
+    static Map<String, BitSet> charSets = new HashMap<>();
+
+    static int character() {
+        // character = CHR "(" number ")" | one-character string .
+        String item = take();
+        if (item.equals("CHR")) {
+            expect("(");
+            int c = Integer.parseInt(take());
+            expect(")");
+            return c;
+        }
+        if (!isString(item) || item.length() != 3)
+            abort("character expected, not " + item);
+        return item.charAt(1);
+    }
+
+    static BitSet charSet() {
+        // charSet = setTerm { "+" setTerm } .
+        // setTerm = string | name | character ".." character .
+        BitSet set = new BitSet();
+        do {
+            if (peek().equals("+"))
+                take();
+            String item = peek();
+            if (item.equals("CHR") || isString(item) && items.get(next + 1).equals("..")) {
+                int from = character();
+                expect("..");
+                set.set(from, character() + 1);
+            } else if (isString(item)) {
+                take();
+                for (int i = 1; i < item.length() - 1; i++)
+                    set.set(item.charAt(i));
+            } else if (charSets.containsKey(item))
+                set.or(charSets.get(take()));
+            else
+                abort("undefined character set " + item);
+        } while (peek().equals("+"));
+        if (set.length() > 128)
+            abort("only ASCII characters can be specified");
+        return set;
+    }
+
+    // +++++++++++++++++++++++++ NFA construction ++++++++++++++++++++++++++++
+
+    static class Node {
+        int id, accept = -1; // accept is the token kind recognised on reaching here
+        List<BitSet> sets = new ArrayList<>(); // edge labels - null for an empty move
+        List<Node> to = new ArrayList<>();
+    }
+
+    static List<Node> nodes = new ArrayList<>();
+    static List<BitSet> labels = new ArrayList<>(); // every character set used on an edge
+
+    static Node node() {
+        Node n = new Node();
+        n.id = nodes.size();
+        nodes.add(n);
+        return n;
+    }
+
+    static void edge(Node from, BitSet set, Node to) {
+        from.sets.add(set);
+        from.to.add(to);
+        if (set != null)
+            labels.add(set);
+    }
+
+    // an expression is translated into a fragment, held as its entry and exit nodes
+
+    static Node[] literal(String text) {
+        Node start = node(), end = start;
+        for (int i = 0; i < text.length(); i++) {
+            BitSet set = new BitSet();
+            set.set(text.charAt(i));
+            Node n = node();
+            edge(end, set, n);
+            end = n;
+        }
+        return new Node[] { start, end };
+    }
+
+    static Node[] expression() {
+        // expression = term { "|" term } .
+        Node[] f = term();
+        if (!peek().equals("|"))
+            return f;
+        Node start = node(), end = node();
+        edge(start, null, f[0]);
+        edge(f[1], null, end);
+        while (peek().equals("|")) {
+            take();
+            f = term();
+            edge(start, null, f[0]);
+            edge(f[1], null, end);
+        }
+        return new Node[] { start, end };
+    }
+
+    static Node[] term() {
+        // term = factor { factor } .
+        Node[] f = factor();
+        while (!peek().equals("|") && !peek().equals(".") && !peek().equals(")")
+                && !peek().equals("]") && !peek().equals("}")) {
+            Node[] g = factor();
+            edge(f[1], null, g[0]);
+            f = new Node[] { f[0], g[1] };
+        }
+        return f;
+    }
+
+    static Node[] factor() {
+        // factor = name | string | "(" expression ")" | "[" expression "]" | "{" expression "}" .
+        String item = take();
+        if (isString(item))
+            return literal(item.substring(1, item.length() - 1));
+        if (charSets.containsKey(item)) {
+            Node start = node(), end = node();
+            edge(start, charSets.get(item), end);
+            return new Node[] { start, end };
+        }
+        Node[] f;
+        switch (item) {
+            case "(":
+                f = expression();
+                expect(")");
+                return f;
+            case "[":
+                f = expression();
+                expect("]");
+                edge(f[0], null, f[1]);
+                return f;
+            case "{":
+                Node loop = node();
+                f = expression();
+                expect("}");
+                edge(loop, null, f[0]);
+                edge(f[1], null, loop);
+                return new Node[] { loop, loop };
+            default:
+                abort("undefined name " + item);
+                return null;
+        }
+    }
+
+    // +++++++++++++++++++++++++ DFA construction ++++++++++++++++++++++++++++
+
+    static BitSet closure(BitSet set) {
+        // adds every node reachable by empty moves
+        Deque<Integer> work = new ArrayDeque<>();
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1))
+            work.push(i);
+        while (!work.isEmpty()) {
+            Node n = nodes.get(work.pop());
+            for (int e = 0; e < n.to.size(); e++)
+                if (n.sets.get(e) == null && !set.get(n.to.get(e).id)) {
+                    set.set(n.to.get(e).id);
+                    work.push(n.to.get(e).id);
+                }
+        }
+        return set;
+    }
+
+    // +++++++++++++++++++++++++ Main driver function ++++++++++++++++++++++++
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.out.println("Usage: ScanGen Specification Frame Output");
+            System.exit(1);
+        }
+        split(new String(Files.readAllBytes(Paths.get(args[0])), "ISO-8859-1"));
+
+        List<String> kinds = new ArrayList<>(); // token names, in order
+        List<String> keywords = new ArrayList<>(); // keyword spellings
+        List<Integer> keywordKinds = new ArrayList<>();
+        Node start = node();
+        BitSet ignore = new BitSet();
+        String commentOpen = null, commentClose = null;
+        boolean nested = false;
+
+        while (next < items.size()) {
+            String section = take();
+            switch (section) {
+                case "CHARACTERS":
+                    while (!isSection(peek())) {
+                        String name = take();
+                        expect("=");
+                        charSets.put(name, charSet());
+                        expect(".");
+                    }
+                    break;
+                case "TOKENS":
+                    while (!isSection(peek())) {
+                        String name = take();
+                        int kind = kinds.size();
+                        kinds.add(name);
+                        if (!peek().equals("="))
+                            continue; // kinds such as noSym and EOFSym have no spelling
+                        take();
+                        String item = peek();
+                        if (isString(item) && items.get(next + 1).equals(".")
+                                && item.substring(1, item.length() - 1).matches("[A-Za-z][A-Za-z0-9]*")) {
+                            take();
+                            keywords.add(item.substring(1, item.length() - 1));
+                            keywordKinds.add(kind);
+                        } else {
+                            Node[] f = expression();
+                            edge(start, null, f[0]);
+                            f[1].accept = kind;
+                        }
+                        expect(".");
+                    }
+                    break;
+                case "COMMENTS":
+                    expect("FROM");
+                    commentOpen = take();
+                    expect("TO");
+                    commentClose = take();
+                    if (peek().equals("NESTED")) {
+                        take();
+                        nested = true;
+                    }
+                    if (commentOpen.length() != 4 || commentClose.length() != 4)
+                        abort("comments must start and end with two characters");
+                    break;
+                case "IGNORE":
+                    ignore = charSet();
+                    break;
+                default:
+                    abort("section name expected, not " + section);
+            }
+        }
+        int commentKind = kinds.size();
+        if (commentOpen != null) {
+            Node[] f = literal(commentOpen.substring(1, commentOpen.length() - 1));
+            edge(start, null, f[0]);
+            f[1].accept = commentKind;
+        }
+        for (BitSet set : labels)
+            if (set.intersects(ignore))
+                abort("ignored characters may not appear in tokens");
+
+        // characters that behave identically on every edge share a class; class 0
+        // is reserved for characters that can start or continue nothing
+        labels.add(ignore);
+        byte[] classOf = new byte[128];
+        Map<List<Integer>, Integer> classes = new HashMap<>();
+        classes.put(new ArrayList<Integer>(), 0);
+        List<Integer> sample = new ArrayList<>(); // a character of each class
+        sample.add(0);
+        for (int c = 0; c < 128; c++) {
+            List<Integer> signature = new ArrayList<>();
+            for (int s = 0; s < labels.size(); s++)
+                if (labels.get(s).get(c))
+                    signature.add(s);
+            Integer cls = classes.get(signature);
+            if (cls == null) {
+                cls = classes.size();
+                classes.put(signature, cls);
+                sample.add(c);
+            }
+            classOf[c] = (byte) (int) cls;
+        }
+        int nClasses = classes.size();
+
+        // subset construction - state 0 is the dead state and state 1 the start
+        List<BitSet> states = new ArrayList<>();
+        Map<BitSet, Integer> stateOf = new HashMap<>();
+        states.add(new BitSet());
+        BitSet first = new BitSet();
+        first.set(start.id);
+        states.add(closure(first));
+        stateOf.put(states.get(1), 1);
+        List<int[]> delta = new ArrayList<>();
+        for (int s = 0; s < states.size(); s++) {
+            int[] row = new int[nClasses];
+            BitSet set = states.get(s);
+            for (int cls = 1; cls < nClasses && s > 0; cls++) {
+                BitSet moved = new BitSet();
+                for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+                    Node n = nodes.get(i);
+                    for (int e = 0; e < n.to.size(); e++)
+                        if (n.sets.get(e) != null && n.sets.get(e).get(sample.get(cls)))
+                            moved.set(n.to.get(e).id);
+                }
+                if (moved.isEmpty())
+                    continue;
+                closure(moved);
+                Integer target = stateOf.get(moved);
+                if (target == null) {
+                    target = states.size();
+                    states.add(moved);
+                    stateOf.put(moved, target);
+                }
+                row[cls] = target;
+            }
+            delta.add(row);
+        }
+        int[] accept = new int[states.size()];
+        for (int s = 1; s < states.size(); s++) {
+            int kind = Integer.MAX_VALUE;
+            BitSet set = states.get(s);
+            for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1))
+                if (nodes.get(i).accept >= 0)
+                    kind = Math.min(kind, nodes.get(i).accept);
+            accept[s] = kind == Integer.MAX_VALUE ? 0 : kind;
+            if (s > 1 && accept[s] == 0)
+                abort("a token is a prefix of another that is not a token itself, which needs backtracking");
+        }
+
+        // merge states that cannot be told apart: start from groups of states
+        // accepting the same kind and split them until every member of a group
+        // moves to the same groups as the others
+        int[] group = accept.clone();
+        int nGroups = 0;
+        while (true) {
+            Map<List<Integer>, Integer> split = new LinkedHashMap<>();
+            int[] refined = new int[group.length];
+            for (int s = 0; s < group.length; s++) {
+                List<Integer> key = new ArrayList<>();
+                key.add(group[s]);
+                for (int cls = 0; cls < nClasses; cls++)
+                    key.add(group[delta.get(s)[cls]]);
+                Integer g = split.get(key);
+                if (g == null) {
+                    g = split.size();
+                    split.put(key, g);
+                }
+                refined[s] = g;
+            }
+            group = refined;
+            if (split.size() == nGroups)
+                break;
+            nGroups = split.size();
+        }
+        // groups are numbered in order of their first state, so the dead state
+        // and the start state keep the numbers 0 and 1
+        List<int[]> merged = new ArrayList<>();
+        int[] mergedAccept = new int[nGroups];
+        for (int s = 0; s < group.length; s++)
+            if (group[s] == merged.size()) {
+                int[] row = new int[nClasses];
+                for (int cls = 0; cls < nClasses; cls++)
+                    row[cls] = group[delta.get(s)[cls]];
+                merged.add(row);
+                mergedAccept[group[s]] = accept[s];
+            }
+        delta = merged;
+        accept = mergedAccept;
+
+        // keywords are identifiers to the automaton - find which kind that is
+        int identKind = 0;
+        if (!keywords.isEmpty()) {
+            int s = 1;
+            for (char c : keywords.get(0).toCharArray())
+                s = delta.get(s)[classOf[c]];
+            identKind = accept[s];
+            if (identKind == 0)
+                abort("keyword " + keywords.get(0) + " is not an identifier");
+        }
+
+        // now fill in the frame, which is laid out in the style of the library
+        int ignoreClass = ignore.isEmpty() ? -1 : classOf[ignore.nextSetBit(0)];
+        StringBuilder kindText = new StringBuilder("  public static final int\n");
+        for (int k = 0; k < kinds.size(); k++)
+            kindText.append("    " + kinds.get(k) + " = " + k + (k + 1 < kinds.size() ? ",\n" : ";\n"));
+        kindText.append("\n  static final int identKind = " + kinds.get(identKind)
+                + ", commentKind = " + commentKind + ";\n");
+
+        StringBuilder tableText = new StringBuilder();
+        tableText.append("  static final int classes = " + nClasses + ", startState = 1, ignoreClass = "
+                + ignoreClass + ";\n\n");
+        tableText.append("  static final byte[] classOf = {");
+        for (int c = 0; c < 128; c++)
+            tableText.append((c % 16 == 0 ? "\n    " : " ") + classOf[c] + (c < 127 ? "," : ""));
+        tableText.append("\n  };\n\n  static final short[] delta = {   // delta[state * classes + class]");
+        for (int s = 0; s < delta.size(); s++) {
+            tableText.append("\n   ");
+            for (int cls = 0; cls < nClasses; cls++)
+                tableText.append(" " + delta.get(s)[cls] + (s + 1 < delta.size() || cls + 1 < nClasses ? "," : ""));
+        }
+        tableText.append("\n  };\n\n  static final int[] accept = {");
+        for (int s = 0; s < accept.length; s++)
+            tableText.append((s % 16 == 0 ? "\n    " : " ") + accept[s] + (s + 1 < accept.length ? "," : ""));
+        tableText.append("\n  };\n\n  static final String[] keywords = {");
+        for (int k = 0; k < keywords.size(); k++)
+            tableText.append((k == 0 ? " " : ", ") + "\"" + keywords.get(k) + "\"");
+        tableText.append(" };\n  static final int[] keywordKinds = {");
+        for (int k = 0; k < keywordKinds.size(); k++)
+            tableText.append((k == 0 ? " " : ", ") + kinds.get(keywordKinds.get(k)));
+        tableText.append(" };\n");
+        if (commentClose != null)
+            tableText.append("\n  static final char commentOpen1 = '" + commentOpen.charAt(1)
+                    + "', commentOpen2 = '" + commentOpen.charAt(2) + "',\n"
+                    + "                    commentClose1 = '" + commentClose.charAt(1)
+                    + "', commentClose2 = '" + commentClose.charAt(2) + "';\n"
+                    + "  static final boolean nestedComments = " + nested + ";\n");
+
+        StringBuilder out = new StringBuilder();
+        for (String line : Files.readAllLines(Paths.get(args[1]), java.nio.charset.StandardCharsets.ISO_8859_1)) {
+            if (line.trim().equals("//-->kinds"))
+                out.append(kindText);
+            else if (line.trim().equals("//-->tables"))
+                out.append(tableText);
+            else
+                out.append(line).append('\n');
+        }
+        Files.write(Paths.get(args[2]), out.toString().getBytes("ISO-8859-1"));
+        System.out.println(kinds.size() + " token kinds, " + nClasses + " character classes, "
+                + delta.size() + " states");
+    } // main
+
+} // ScanGen
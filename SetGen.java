@@ -0,0 +1,375 @@
+// by R. Malope, T. Coutts, K. Lesese, H. Chagaluka, 2025
+
+// This is the grammar analysis step for the hand written parsers.  It reads the
+// productions documented in the comments of a parser, such as
+//
+//   // TypeDecl = identifier "=" Type .
+//
+// works out the FIRST and FOLLOW set of every nonterminal, reports any place
+// where the grammar is not LL(1), and writes the sets into the parser source
+// between the lines //-->sets and //<--sets, as TokenSet constants named
+// typeDeclFirst, typeDeclFollow and so on.  The first production is the goal,
+// which must be followed by EOF.  Terminals are written as in the token
+// specification: a literal such as "TYPE", or a token name less its "Sym"
+//
+// Usage: java SetGen Specification Parser
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+
+class SetGen {
+
+    static void abort(String errorMessage) {
+        // Abandons generation after issuing error message
+        System.out.println("SetGen: " + errorMessage);
+        System.exit(1);
+    }
+
+    // +++++++++++++++++++++++++ Terminals +++++++++++++++++++++++++++++++++++
+
+    static List<String> kinds = new ArrayList<>(); // token names, in order
+    static Map<String, Integer> literals = new HashMap<>(); // "TYPE" -> kind
+
+    static void readTokens(String spec) {
+        // collects the token names, and the literal spelling of each literal token
+        int from = spec.indexOf("TOKENS"), to = spec.indexOf("COMMENTS", from);
+        if (from < 0)
+            abort("no TOKENS in the specification");
+        if (to < 0)
+            to = spec.indexOf("IGNORE", from);
+        if (to < 0)
+            to = spec.length();
+        Matcher m = Pattern.compile("(?m)^[ \t]*(\\w+)[ \t]*(?:=[ \t]*(?:(\"[^\"]*\")[ \t]*\\.)?)?")
+                .matcher(spec.substring(from + "TOKENS".length(), to));
+        while (m.find()) {
+            if (m.group(2) != null)
+                literals.put(m.group(2), kinds.size());
+            kinds.add(m.group(1));
+        }
+    }
+
+    static int terminal(String item) {
+        // returns the kind of terminal item, or -1 if it is not one
+        if (item.startsWith("\""))
+            return literals.containsKey(item) ? literals.get(item) : -1;
+        return kinds.indexOf(item + "Sym");
+    }
+
+    // +++++++++++++++++++++++++ Reading the productions +++++++++++++++++++++
+
+    // An expression is held as a tree: op is one of
+    //   't' terminal, 'n' nonterminal, '|' alternatives, ' ' sequence,
+    //   '[' option, '{' repetition
+
+    static class Expr {
+        char op;
+        int kind; // terminal kind
+        String name; // nonterminal name
+        List<Expr> parts = new ArrayList<>();
+
+        Expr(char op) {
+            this.op = op;
+        }
+    }
+
+    static List<String> names = new ArrayList<>(); // nonterminals, goal first
+    static Map<String, Expr> rules = new HashMap<>();
+    static List<String> items; // lexical items of the production being read
+    static int next;
+
+    static String peek() {
+        return next < items.size() ? items.get(next) : ".";
+    }
+
+    static String take() {
+        String item = peek();
+        next++;
+        return item;
+    }
+
+    static void expect(String item) {
+        if (!take().equals(item))
+            abort(item + " expected in " + names.get(names.size() - 1));
+    }
+
+    static List<String> split(String text) {
+        // breaks text into names, strings and symbols
+        List<String> result = new ArrayList<>();
+        Matcher m = Pattern.compile("\\w+|\"[^\"]*\"|\\S").matcher(text);
+        while (m.find())
+            result.add(m.group());
+        return result;
+    }
+
+    static void readProductions(String source) {
+        // production = Name "=" expression "." , written as a // comment line
+        Matcher m = Pattern.compile("(?m)^\\s*//\\s*([A-Z]\\w*)\\s*=(.*)\\.\\s*$").matcher(source);
+        while (m.find()) {
+            String name = m.group(1);
+            if (rules.containsKey(name))
+                abort(name + " is defined twice");
+            names.add(name);
+            items = split(m.group(2));
+            next = 0;
+            Expr e = expression();
+            if (next < items.size())
+                abort("unexpected " + peek() + " in " + name);
+            rules.put(name, e);
+        }
+        if (names.isEmpty())
+            abort("no productions found");
+    }
+
+    static Expr expression() {
+        // expression = term { "|" term } .
+        Expr t = term();
+        if (!peek().equals("|"))
+            return t;
+        Expr e = new Expr('|');
+        e.parts.add(t);
+        while (peek().equals("|")) {
+            take();
+            e.parts.add(term());
+        }
+        return e;
+    }
+
+    static Expr term() {
+        // term = factor { factor } .  SYNC (a recovery point) is passed over
+        Expr e = new Expr(' ');
+        while (!peek().equals("|") && !peek().equals(".") && !peek().equals(")")
+                && !peek().equals("]") && !peek().equals("}"))
+            if (peek().equals("SYNC"))
+                take();
+            else
+                e.parts.add(factor());
+        return e.parts.size() == 1 ? e.parts.get(0) : e;
+    }
+
+    static Expr factor() {
+        // factor = name | string | "(" expression ")" | "[" expression "]" | "{" expression "}" .
+        String item = take();
+        Expr e;
+        switch (item) {
+            case "(":
+                e = expression();
+                expect(")");
+                return e;
+            case "[":
+            case "{":
+                e = new Expr(item.charAt(0));
+                e.parts.add(expression());
+                expect(item.equals("[") ? "]" : "}");
+                return e;
+        }
+        int kind = terminal(item);
+        if (kind >= 0) {
+            e = new Expr('t');
+            e.kind = kind;
+        } else if (Character.isLetter(item.charAt(0)) && !item.startsWith("\"")) {
+            e = new Expr('n');
+            e.name = item;
+        } else {
+            abort("unknown terminal " + item);
+            return null;
+        }
+        return e;
+    }
+
+    // +++++++++++++++++++++++++ Analysis ++++++++++++++++++++++++++++++++++++
+
+    static Map<String, Boolean> nullable = new HashMap<>();
+    static Map<String, BitSet> first = new HashMap<>(), follow = new HashMap<>();
+    static boolean changed;
+    static int conflicts;
+
+    static boolean nullable(Expr e) {
+        switch (e.op) {
+            case 't':
+                return false;
+            case 'n':
+                return nullable.get(e.name);
+            case '|':
+                for (Expr p : e.parts)
+                    if (nullable(p))
+                        return true;
+                return false;
+            case ' ':
+                for (Expr p : e.parts)
+                    if (!nullable(p))
+                        return false;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    static BitSet first(Expr e) {
+        BitSet s = new BitSet();
+        switch (e.op) {
+            case 't':
+                s.set(e.kind);
+                break;
+            case 'n':
+                s.or(first.get(e.name));
+                break;
+            case ' ':
+                for (Expr p : e.parts) {
+                    s.or(first(p));
+                    if (!nullable(p))
+                        break;
+                }
+                break;
+            default:
+                for (Expr p : e.parts)
+                    s.or(first(p));
+        }
+        return s;
+    }
+
+    static BitSet firstOfRest(List<Expr> parts, int from, BitSet after) {
+        // FIRST of parts[from ..], together with after if they can all be empty
+        BitSet s = new BitSet();
+        for (int i = from; i < parts.size(); i++) {
+            s.or(first(parts.get(i)));
+            if (!nullable(parts.get(i)))
+                return s;
+        }
+        s.or(after);
+        return s;
+    }
+
+    static void walk(String rule, Expr e, BitSet after, boolean check) {
+        // adds after (what may follow e) to the FOLLOW set of each nonterminal
+        // in e; if check is set, reports choices that one symbol cannot decide
+        switch (e.op) {
+            case 'n':
+                BitSet f = follow.get(e.name);
+                BitSet old = (BitSet) f.clone();
+                f.or(after);
+                changed |= !f.equals(old);
+                break;
+            case ' ':
+                for (int i = 0; i < e.parts.size(); i++)
+                    walk(rule, e.parts.get(i), firstOfRest(e.parts, i + 1, after), check);
+                break;
+            case '|':
+                if (check) {
+                    BitSet seen = new BitSet();
+                    for (Expr p : e.parts) {
+                        BitSet s = first(p);
+                        if (nullable(p))
+                            s.or(after);
+                        conflict(rule, "alternatives", seen, s);
+                        seen.or(s);
+                    }
+                }
+                for (Expr p : e.parts)
+                    walk(rule, p, after, check);
+                break;
+            case '[':
+            case '{':
+                Expr body = e.parts.get(0);
+                if (check)
+                    conflict(rule, e.op == '[' ? "[ ... ]" : "{ ... }", first(body), after);
+                BitSet inner = (BitSet) after.clone();
+                if (e.op == '{')
+                    inner.or(first(body));
+                walk(rule, body, inner, check);
+                break;
+        }
+    }
+
+    static void conflict(String rule, String where, BitSet a, BitSet b) {
+        BitSet both = (BitSet) a.clone();
+        both.and(b);
+        if (!both.isEmpty()) {
+            System.out.println("LL(1) warning in " + rule + ": " + where + " not decided by " + list(both));
+            conflicts++;
+        }
+    }
+
+    static void analyse() {
+        for (String n : names) {
+            nullable.put(n, false);
+            first.put(n, new BitSet());
+            follow.put(n, new BitSet());
+        }
+        for (Expr e : rules.values())
+            check(e);
+        do {
+            changed = false;
+            for (String n : names) {
+                boolean nl = nullable(rules.get(n));
+                BitSet f = first(rules.get(n));
+                changed |= nl != nullable.get(n) || !f.equals(first.get(n));
+                nullable.put(n, nl);
+                first.put(n, f);
+            }
+        } while (changed);
+        follow.get(names.get(0)).set(kinds.indexOf("EOFSym"));
+        do {
+            changed = false;
+            for (String n : names)
+                walk(n, rules.get(n), follow.get(n), false);
+        } while (changed);
+        for (String n : names)
+            walk(n, rules.get(n), follow.get(n), true);
+    }
+
+    static void check(Expr e) {
+        // every nonterminal used must be defined
+        if (e.op == 'n' && !rules.containsKey(e.name))
+            abort(e.name + " is not defined");
+        for (Expr p : e.parts)
+            check(p);
+    }
+
+    // +++++++++++++++++++++++++ Output ++++++++++++++++++++++++++++++++++++++
+
+    static String list(BitSet s) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = s.nextSetBit(0); i >= 0; i = s.nextSetBit(i + 1))
+            sb.append(sb.length() == 0 ? "" : ", ").append(kinds.get(i));
+        return sb.toString();
+    }
+
+    static String sets(String indent) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(indent).append("static final TokenSet");
+        for (int i = 0; i < names.size(); i++) {
+            String n = names.get(i), lower = Character.toLowerCase(n.charAt(0)) + n.substring(1);
+            sb.append(i == 0 ? "\n" : ",\n").append(indent).append("        ").append(lower)
+                    .append("First = new TokenSet(").append(list(first.get(n))).append("),\n")
+                    .append(indent).append("        ").append(lower)
+                    .append("Follow = new TokenSet(").append(list(follow.get(n))).append(")");
+        }
+        return sb.append(";\n").toString();
+    }
+
+    // +++++++++++++++++++++++++ Main driver function ++++++++++++++++++++++++
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: SetGen Specification Parser");
+            System.exit(1);
+        }
+        readTokens(new String(Files.readAllBytes(Paths.get(args[0])), "ISO-8859-1"));
+        String source = new String(Files.readAllBytes(Paths.get(args[1])), "ISO-8859-1");
+        readProductions(source);
+        analyse();
+
+        int start = source.indexOf("//-->sets"), end = source.indexOf("//<--sets");
+        if (start < 0 || end < start)
+            abort("//-->sets and //<--sets not found in " + args[1]);
+        start = source.indexOf('\n', start) + 1;
+        int lineStart = source.lastIndexOf('\n', end) + 1;
+        String indent = source.substring(lineStart, end);
+        source = source.substring(0, start) + sets(indent) + source.substring(lineStart);
+        Files.write(Paths.get(args[1]), source.getBytes("ISO-8859-1"));
+        System.out.println(names.size() + " productions, " + conflicts + " LL(1) warnings");
+    }
+
+} // SetGen
@@ -0,0 +1,486 @@
+package library;
+
+import java.nio.*;
+import java.util.*;
+
+// This file is generated by ScanGen from DeclScanner.atg and DeclScanner.frame.
+// Change those and regenerate it rather than editing it by hand.
+
+public class DeclScanner {
+// Table-driven scanner for Modula-2 declarations.  Each token is recognised by
+// running a DFA over classes of characters, so the inner loop is a table lookup
+// per character rather than a ladder of tests.  A memory mapped input is
+// scanned straight from its bytes, falling back to the character rules (for
+// non-ASCII text or a stray CR) by rewinding to the start of the token.
+
+  public static final int
+    noSym = 0,
+    EOFSym = 1,
+    identifierSym = 2,
+    numberSym = 3,
+    typeSym = 4,
+    varSym = 5,
+    arraySym = 6,
+    recordSym = 7,
+    endSym = 8,
+    setSym = 9,
+    ofSym = 10,
+    pointerSym = 11,
+    toSym = 12,
+    equalsSym = 13,
+    commaSym = 14,
+    semicolonSym = 15,
+    colonSym = 16,
+    dotSym = 17,
+    leftBracketSym = 18,
+    rightBracketSym = 19,
+    leftParenSym = 20,
+    rightParenSym = 21,
+    starSym = 22,
+    rangeSym = 23;
+
+  static final int identKind = identifierSym, commentKind = 24;
+
+  static final int classes = 16, startState = 1, ignoreClass = 1;
+
+  static final byte[] classOf = {
+    0, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+    1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+    1, 0, 0, 0, 0, 0, 0, 0, 2, 3, 4, 0, 5, 0, 6, 0,
+    7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 8, 9, 0, 10, 0, 0,
+    0, 11, 11, 11, 11, 11, 11, 12, 13, 12, 12, 12, 12, 12, 12, 12,
+    12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 14, 0, 15, 0, 0,
+    0, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12,
+    12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 0, 0, 0, 0, 0
+  };
+
+  static final short[] delta = {   // delta[state * classes + class]
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 11, 11, 12, 13,
+    0, 0, 0, 0, 14, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 15, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 7, 0, 0, 0, 7, 0, 16, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 11, 0, 0, 0, 11, 11, 11, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0
+  };
+
+  static final int[] accept = {
+    0, 0, 20, 21, 22, 14, 17, 3, 16, 15, 13, 2, 18, 19, 24, 23,
+    3
+  };
+
+  static final String[] keywords = { "TYPE", "VAR", "ARRAY", "RECORD", "END", "SET", "OF", "POINTER", "TO" };
+  static final int[] keywordKinds = { typeSym, varSym, arraySym, recordSym, endSym, setSym, ofSym, pointerSym, toSym };
+
+  static final char commentOpen1 = '(', commentOpen2 = '*',
+                    commentClose1 = '*', commentClose2 = ')';
+  static final boolean nestedComments = true;
+
+  public static final char EOF = '\0';
+
+  static final KeywordTable keywordTable = new KeywordTable(keywords, keywordKinds, identKind);
+
+  InFile input;
+  OutFile output;             // reflected listing, written as input is read
+  NameTable names = new NameTable();
+  String error;               // description of the latest noSym token
+  LineIndex lines;            // made only when a position is first asked about
+
+  // When the input is memory mapped the scanner walks the file by index
+  // instead of going through InFile.readChar()
+
+  ByteBuffer source;          // mapped input, or null
+  int srcPos, srcEnd;         // index of next byte, and end of the input
+
+  char ch;                    // look ahead character
+  boolean atEndOfFile;
+  int charCount;              // characters read through InFile so far
+
+  char[] lexBuf = new char[64];   // spelling of a token scanned by the character rules
+  int lexLen;
+
+  public DeclScanner(InFile input, OutFile output) {
+  // Prepares to scan input, reflecting it to output (which may be null).  A
+  // mapped input is not reflected as it is read - see reflect()
+    this.input = input;
+    this.output = output;
+    source = input.buffer();
+    if (source != null) {
+      source.order(ByteOrder.LITTLE_ENDIAN);   // so the first byte of a long is its lowest
+      srcEnd = source.limit();
+    }
+    getChar();
+  } // DeclScanner
+
+  public DeclScanner(ByteBuffer source, int start) {
+  // Prepares to scan source (a mapped file) from byte start onwards, as if
+  // that were outside any comment.  Nothing is reflected
+    this.source = source.duplicate();
+    this.source.order(ByteOrder.LITTLE_ENDIAN);
+    srcEnd = this.source.limit();
+    srcPos = echoPos = start;
+    getChar();
+  } // DeclScanner
+
+  public void next(Token t) {
+  // Scans the next token into t.  If the input is in error t.kind is set to
+  // noSym, and error() describes the problem
+    while (true) {
+      // skip what is to be ignored, a run of bytes at a time when mapped
+      while (ch != EOF && classOf(ch) == ignoreClass) {
+        if (source != null) srcPos = skipBlanks(srcPos);
+        getChar();
+      }
+      if (ch == EOF) {
+        t.set(EOFSym, position(), 0, this);
+        return;
+      }
+      int kind = source != null ? byteToken(t) : -1;
+      if (kind < 0) kind = charToken(t);
+      if (kind != commentKind) return;
+      if (!skipComment()) {
+        error = "Unterminated comment";
+        t.set(noSym, t.pos, position() - t.pos, this);
+        return;
+      }
+    }
+  } // DeclScanner.next
+
+  int byteToken(Token t) {
+  // Scans a token straight from the mapped bytes, returning its kind, or -1 if
+  // the character rules are needed - in which case nothing has been consumed
+    if (ch >= 128) return -1;
+    int start = srcPos - 1, state = delta[startState * classes + classOf[ch]], p = srcPos;
+    if (state == 0) return -1;
+    while (p < srcEnd) {
+      int b = source.get(p);
+      if (b == '\r') {
+        if (strayCR(p)) return -1;   // a stray CR is dropped, which may join two tokens
+        b = '\n';
+      }
+      else if (b < 0) return -1;
+      int next = delta[state * classes + classOf[b]];
+      if (next == 0) break;
+      state = next;
+      p++;
+    }
+    srcPos = p;
+    ch = sourceChar();
+    return found(t, accept[state], start, p - start, true);
+  } // DeclScanner.byteToken
+
+  int charToken(Token t) {
+  // Scans a token one character at a time, returning its kind
+    int start = chPos(), state = startState;
+    lexLen = 0;
+    while (true) {
+      int next = delta[state * classes + classOf(ch)];
+      if (next == 0) break;
+      appendLex(ch);
+      getChar();
+      state = next;
+    }
+    if (state == startState) {
+      error = "Invalid character '" + ch + "'";
+      appendLex(ch);
+      getChar();
+      t.set(noSym, start, source != null ? chPos() - start : lexLen, this);
+      return noSym;
+    }
+    return found(t, accept[state], start, source != null ? chPos() - start : lexLen, false);
+  } // DeclScanner.charToken
+
+  int found(Token t, int kind, int pos, int len, boolean fromBytes) {
+  // Records the token just scanned in t, telling keywords from identifiers.
+  // Its spelling is in the mapped bytes if fromBytes, otherwise in lexBuf
+    if (kind == identKind) {
+      kind = fromBytes ? keywordTable.lookup(source, pos, len) : keywordTable.lookup(lexBuf, 0, lexLen);
+      t.set(kind, pos, len, this);
+      if (kind == identKind) t.id = fromBytes ? names.enter(source, pos, len) : names.enter(lexBuf, 0, lexLen);
+    }
+    else {
+      t.set(kind, pos, len, this);
+      if (kind == numberSym && !number(t, fromBytes ? len : lexLen, fromBytes)) {
+        t.kind = kind = noSym;
+        t.value = 0;
+      }
+    }
+    return kind;
+  } // DeclScanner.found
+
+  boolean number(Token t, int len, boolean fromBytes) {
+  // Works out t.value for the number just scanned, of len characters: decimal,
+  // hexadecimal with an H suffix, octal with a B suffix, or an octal character
+  // code with a C suffix.  Returns false (setting error) if it is malformed or
+  // does not fit
+    char last = numberChar(t.pos, len - 1, fromBytes);
+    int radix = last == 'H' ? 16 : last == 'B' || last == 'C' ? 8 : 10;
+    int digits = radix == 10 ? len : len - 1;
+    long limit = Long.MAX_VALUE / radix, value = 0;
+    for (int i = 0; i < digits; i++) {
+      int d = Character.digit(numberChar(t.pos, i, fromBytes), radix);
+      if (d < 0) {
+        error = "Invalid number";
+        return false;
+      }
+      if (value > limit || value * radix > Long.MAX_VALUE - d) {
+        error = "Number too large";
+        return false;
+      }
+      value = value * radix + d;
+    }
+    if (last == 'C' && value > 0377) {
+      error = "Invalid character code";
+      return false;
+    }
+    t.value = value;
+    return true;
+  } // DeclScanner.number
+
+  char numberChar(int pos, int i, boolean fromBytes) {
+  // Returns character i of the number at pos - in the mapped bytes if
+  // fromBytes, otherwise in lexBuf
+    return fromBytes ? (char) source.get(pos + i) : lexBuf[i];
+  } // DeclScanner.numberChar
+
+  boolean skipComment() {
+  // Skips the rest of a comment whose opening has just been scanned, together
+  // with any comments nested in it.  Returns false if the input ends first
+    int depth = 1;
+    if (source != null && ch != EOF) {
+      // look for the brackets without decoding anything; anything unusual is
+      // left to the character loop below, which carries on from there
+      int p = srcPos - 1;
+      while ((p = commentByte(p)) + 1 < srcEnd) {
+        byte b = source.get(p);
+        if (b == 0 || b == 26 || strayCR(p)) break;
+        byte next = source.get(p + 1);
+        if (next == '\r' && strayCR(p + 1)) break;   // the CR is dropped, so b may pair with what follows
+        if (b == commentClose1 && next == commentClose2) {
+          p++;
+          if (--depth == 0) {
+            srcPos = p + 1;
+            ch = sourceChar();
+            return true;
+          }
+        }
+        else if (nestedComments && b == commentOpen1 && next == commentOpen2) {
+          p++;
+          depth++;
+        }
+        p++;
+      }
+      srcPos = p;
+      ch = sourceChar();
+    }
+    while (ch != EOF) {
+      if (ch == commentClose1) {
+        getChar();
+        if (ch == commentClose2) {
+          getChar();
+          if (--depth == 0) return true;
+        }
+      }
+      else if (nestedComments && ch == commentOpen1) {
+        getChar();
+        if (ch == commentOpen2) {
+          getChar();
+          depth++;
+        }
+      }
+      else getChar();
+    }
+    return false;
+  } // DeclScanner.skipComment
+
+  // Runs of blanks and comment text are the bulk of most declaration files, so
+  // on mapped input they are skipped eight bytes at a time: each long read
+  // from the buffer is tested for bytes of interest with a few word-wide
+  // operations (SWAR), and the first such byte is found from the lowest set
+  // bit.  This assumes the ignored characters are CHR(1) .. CHR(32)
+
+  public static boolean wordScan = true;   // false skips one byte at a time
+
+  static final long ONES = 0x0101010101010101L, LOWS = 0x7F7F7F7F7F7F7F7FL, HIGHS = 0x8080808080808080L;
+
+  static long zeroBytes(long x) {
+  // Returns x with the high bit set in exactly those bytes of x that are zero
+    return ~(((x & LOWS) + LOWS) | x) & HIGHS;
+  } // DeclScanner.zeroBytes
+
+  static long bytesAbove(long x, int n) {
+  // Returns x with the high bit set in exactly those bytes of x above n (< 128)
+    return (((x & LOWS) + ONES * (127 - n)) | x) & HIGHS;
+  } // DeclScanner.bytesAbove
+
+  int skipBlanks(int p) {
+  // Returns the index of the first byte at or after p that is not a blank,
+  // treating NUL and ^Z (which end the input) as not blank
+    if (wordScan)
+      for ( ; p + 8 <= srcEnd; p += 8) {
+        long x = source.getLong(p);
+        long stop = bytesAbove(x, ' ') | zeroBytes(x) | zeroBytes(x ^ ONES * 26);
+        if (stop != 0) return p + (Long.numberOfTrailingZeros(stop) >>> 3);
+      }
+    while (p < srcEnd && source.get(p) > 0 && source.get(p) <= ' ' && source.get(p) != 26) p++;
+    return p;
+  } // DeclScanner.skipBlanks
+
+  int commentByte(int p) {
+  // Returns the index of the first byte at or after p that matters inside a
+  // comment - a bracket character, CR, NUL or ^Z - or srcEnd - 1 if there is
+  // none before the last byte (which cannot start a bracket pair)
+    if (wordScan)
+      for ( ; p + 9 <= srcEnd; p += 8) {
+        long x = source.getLong(p);
+        long stop = zeroBytes(x ^ ONES * commentClose1) | zeroBytes(x ^ ONES * commentOpen1)
+                    | zeroBytes(x ^ ONES * '\r') | zeroBytes(x) | zeroBytes(x ^ ONES * 26);
+        if (stop != 0) return p + (Long.numberOfTrailingZeros(stop) >>> 3);
+      }
+    for ( ; p + 1 < srcEnd; p++) {
+      byte b = source.get(p);
+      if (b == commentClose1 || b == commentOpen1 || b == '\r' || b == 0 || b == 26) return p;
+    }
+    return srcEnd - 1;
+  } // DeclScanner.commentByte
+
+  boolean strayCR(int p) {
+  // True if the byte at p is a CR that is not part of a CR+LF pair
+    return source.get(p) == '\r' && (p + 1 >= srcEnd || source.get(p + 1) != '\n');
+  } // DeclScanner.strayCR
+
+  static int classOf(char c) {
+  // Returns the class of character c; beyond ASCII only letters and digits
+  // can be part of a token
+    if (c < 128) return classOf[c];
+    if (Character.isLetter(c)) return classOf['A'];
+    if (Character.isDigit(c)) return classOf['0'];
+    return 0;
+  } // DeclScanner.classOf
+
+  // +++++++++++++++++++++++++ Characters
+
+  void getChar() {
+  // Obtains next character ch from input, or EOF if the end has been reached.
+  // Reflects ch to output unless the input is mapped
+    if (atEndOfFile) ch = EOF;
+    else {
+      if (source != null) ch = sourceChar();
+      else {
+        ch = input.readChar();
+        if (ch != EOF) {
+          charCount++;
+          if (output != null) output.write(ch);
+        }
+      }
+      atEndOfFile = ch == EOF;
+    }
+  } // DeclScanner.getChar
+
+  char sourceChar() {
+  // Reads the next character from the mapped input, treating it the way InFile
+  // does: CR is dropped, and ^Z or the end of the buffer give EOF.  A ^Z (or
+  // NUL) is left unread, so that srcPos marks the end of the text
+    int c = srcPos < srcEnd ? source.get(srcPos++) & 0xFF : -1;
+    if (c == '\r') c = srcPos < srcEnd ? source.get(srcPos++) & 0xFF : -1;
+    if (c > 0 && c != 26) return (char) c;
+    if (c >= 0) srcPos--;
+    srcEnd = srcPos;
+    return EOF;
+  } // DeclScanner.sourceChar
+
+  int chPos() {
+  // Offset of ch in the input - bytes when mapped, characters otherwise (at
+  // the end, the length of the input)
+    if (source != null) return ch == EOF ? srcPos : srcPos - 1;
+    return ch == EOF ? charCount : charCount - 1;
+  } // DeclScanner.chPos
+
+  void appendLex(char c) {
+    if (lexLen == lexBuf.length) lexBuf = Arrays.copyOf(lexBuf, 2 * lexLen);
+    lexBuf[lexLen++] = c;
+  } // DeclScanner.appendLex
+
+  public int position() {
+  // Returns the offset just past the last character read (which is the look
+  // ahead character) - in bytes when mapped, characters otherwise
+    return source != null ? srcPos : charCount;
+  } // DeclScanner.position
+
+  public boolean mapped() {
+  // Returns true if the input is being scanned from a mapped buffer
+    return source != null;
+  } // DeclScanner.mapped
+
+  public String error() {
+  // Returns a description of the latest error
+    return error;
+  } // DeclScanner.error
+
+  public String where(int pos) {
+  // Returns the line and column of token position pos, for use in a
+  // diagnostic ("" if the input cannot be read again to find them)
+    if (lines == null) {
+      if (source != null) lines = new LineIndex(source);
+      else if (input.fileName().equals("StdIn")) return "";
+      else lines = new LineIndex(input.fileName());
+    }
+    return "line " + lines.line(pos) + " col " + lines.column(pos);
+  } // DeclScanner.where
+
+  public String name(int id) {
+  // Returns the spelling of the identifier with name id
+    return names.name(id);
+  } // DeclScanner.name
+
+  public String spelling(int pos, int len) {
+  // Returns the spelling of the token at pos - taken from the mapped bytes, or
+  // (for InFile input) from the buffer that holds the latest token only
+    if (source == null) return new String(lexBuf, 0, len);
+    StringBuilder sb = new StringBuilder(len);
+    for (int i = pos; i < pos + len; i++) {
+      char c = (char) (source.get(i) & 0xFF);
+      if (c != '\r') sb.append(c);
+    }
+    return sb.toString();
+  } // DeclScanner.spelling
+
+  // Mapped input is reflected in bulk rather than per character: reflect()
+  // writes out everything read since the last call
+
+  int echoPos;                // mapped input before this has been reflected
+  boolean echoAfterCR;        // last byte reflected was a dropped CR
+  char[] echoBuf;
+
+  public void reflect() {
+  // Reflects mapped input up to position(), dropping CRs as the scanner does
+    if (source == null || output == null) return;
+    if (echoBuf == null) echoBuf = new char[8192];
+    int n = 0;
+    while (echoPos < srcPos) {
+      char c = (char) (source.get(echoPos++) & 0xFF);
+      if (c == '\r' && !echoAfterCR) {
+        echoAfterCR = true;
+        continue;
+      }
+      echoAfterCR = false;
+      echoBuf[n++] = c;
+      if (n == echoBuf.length) {
+        output.write(echoBuf, 0, n);
+        n = 0;
+      }
+    }
+    output.write(echoBuf, 0, n);
+  } // DeclScanner.reflect
+
+} // DeclScanner
@@ -0,0 +1,195 @@
+package library;
+
+import java.util.*;
+
+public class DeclTree {
+// Syntax tree of parsed Modula-2 declarations.  Rather than one object per
+// node the tree is an arena of parallel primitive arrays, indexed by node
+// number: the kind of each node, its first child and next sibling (-1 for
+// none), the position of the token it starts at, and a value - the name id of
+// an identifier, or the index in numbers of the value of a number.  A node
+// costs 17 bytes, and the nodes lie in the order the parser met them, so a
+// traversal walks the arrays more or less from one end to the other.
+//
+// The parser builds the tree from the top down: open() starts a node as the
+// last child of the node that is open, and makes it the open node until it is
+// closed again.  Node 0 is the root
+//
+// Shapes of the nodes (children in order):
+//   declsNode        typeDeclNode and varDeclNode, for every section
+//   typeDeclNode     identNode, type
+//   varDeclNode      identListNode, type
+//   identListNode    identNode ...
+//   qualIdentNode    identNode ...
+//   subrangeNode     [ qualIdentNode ] constant constant
+//   enumerationNode  identListNode
+//   arrayTypeNode    index type ... element type
+//   recordTypeNode   fieldListNode ... (empty field lists are left out)
+//   fieldListNode    identListNode, type
+//   setTypeNode      base type
+//   pointerTypeNode  type
+// where a type is a qualIdentNode, subrangeNode, enumerationNode,
+// arrayTypeNode, recordTypeNode, setTypeNode or pointerTypeNode, and a
+// constant is an identNode or numberNode
+
+  public static final int
+    declsNode = 0, typeDeclNode = 1, varDeclNode = 2, identListNode = 3,
+    qualIdentNode = 4, subrangeNode = 5, enumerationNode = 6, arrayTypeNode = 7,
+    recordTypeNode = 8, fieldListNode = 9, setTypeNode = 10, pointerTypeNode = 11,
+    identNode = 12, numberNode = 13;
+
+  static final String[] kindNames = {
+    "Decls", "TypeDecl", "VarDecl", "IdentList", "QualIdent", "Subrange",
+    "Enumeration", "ArrayType", "RecordType", "FieldList", "SetType",
+    "PointerType", "Ident", "Number"
+  };
+
+  byte[] kind = new byte[1024];
+  int[] child = new int[1024], sibling = new int[1024], pos = new int[1024], val = new int[1024];
+  int count;                      // nodes in the tree
+  long[] numbers = new long[64];  // values of the number nodes
+  int numberCount;
+  DeclScanner scanner;            // whose names the identifier nodes refer to
+
+  int[] open = new int[64], last = new int[64], prev = new int[64];  // open nodes, their last two children
+  int depth = -1;                 // index in open of the open node
+
+  public int open(int kind, Token t) {
+  // Starts a node of kind at token t as the last child of the open node (or as
+  // the root), and makes it the open node.  Returns the node
+    int n = node(kind, t);
+    if (depth >= 0) {
+      if (last[depth] < 0) child[open[depth]] = n;
+      else sibling[last[depth]] = n;
+      prev[depth] = last[depth];
+      last[depth] = n;
+    }
+    push(n, -1);
+    return n;
+  } // DeclTree.open
+
+  public void close() {
+  // Closes the open node, so that its parent is open again
+    depth--;
+  } // DeclTree.close
+
+  public int leaf(int kind, Token t) {
+  // Adds a node without children; identNode and numberNode leaves record the
+  // name id or value of t.  Returns the node
+    int n = open(kind, t);
+    close();
+    if (kind == identNode) val[n] = t.id;
+    else if (kind == numberNode) {
+      if (numberCount == numbers.length) numbers = Arrays.copyOf(numbers, 2 * numberCount);
+      numbers[numberCount] = t.value;
+      val[n] = numberCount++;
+    }
+    return n;
+  } // DeclTree.leaf
+
+  public int wrap(int kind) {
+  // Starts a node of kind in place of the last child of the open node, moves
+  // that child into it, and makes the new node the open node.  Returns it
+    int p = open[depth], c = last[depth], n = node(kind, null);
+    pos[n] = pos[c];
+    if (prev[depth] < 0) child[p] = n;
+    else sibling[prev[depth]] = n;
+    last[depth] = n;
+    child[n] = c;
+    push(n, c);
+    return n;
+  } // DeclTree.wrap
+
+  int node(int k, Token t) {
+    if (count == kind.length) {
+      int size = count + (count >> 1);
+      kind = Arrays.copyOf(kind, size);
+      child = Arrays.copyOf(child, size);
+      sibling = Arrays.copyOf(sibling, size);
+      pos = Arrays.copyOf(pos, size);
+      val = Arrays.copyOf(val, size);
+    }
+    int n = count++;
+    kind[n] = (byte) k;
+    child[n] = sibling[n] = val[n] = -1;
+    if (t != null) {
+      pos[n] = t.pos;
+      if (t.scanner != null) scanner = t.scanner;
+    }
+    return n;
+  } // DeclTree.node
+
+  void push(int n, int lastChild) {
+    if (++depth == open.length) {
+      open = Arrays.copyOf(open, 2 * depth);
+      last = Arrays.copyOf(last, 2 * depth);
+      prev = Arrays.copyOf(prev, 2 * depth);
+    }
+    open[depth] = n;
+    last[depth] = lastChild;
+    prev[depth] = -1;
+  } // DeclTree.push
+
+  // Traversal
+
+  public int size() {
+  // Returns the number of nodes in the tree
+    return count;
+  } // DeclTree.size
+
+  public int kind(int n) {
+    return kind[n];
+  } // DeclTree.kind
+
+  public int child(int n) {
+  // Returns the first child of node n, or -1 if it has none
+    return child[n];
+  } // DeclTree.child
+
+  public int sibling(int n) {
+  // Returns the next sibling of node n, or -1 if it is the last
+    return sibling[n];
+  } // DeclTree.sibling
+
+  public int pos(int n) {
+  // Returns the position of the token at which node n starts (see
+  // DeclScanner.position)
+    return pos[n];
+  } // DeclTree.pos
+
+  public int nameId(int n) {
+  // Returns the name id of identNode n
+    return val[n];
+  } // DeclTree.nameId
+
+  public String name(int n) {
+  // Returns the spelling of identNode n
+    return scanner.name(val[n]);
+  } // DeclTree.name
+
+  public long value(int n) {
+  // Returns the value of numberNode n
+    return numbers[val[n]];
+  } // DeclTree.value
+
+  public void write(OutFile out) {
+  // Writes the tree to out, a node to a line, indented to show its depth
+    int[] path = new int[64];     // ancestors of n
+    int d = 0, n = count > 0 ? 0 : -1;
+    while (n >= 0 || d > 0) {
+      if (n < 0) {                // the children of path[d-1] are done
+        n = sibling[path[--d]];
+        continue;
+      }
+      for (int i = 0; i < d; i++) out.write("  ");
+      out.write(kindNames[kind[n]]);
+      if (kind[n] == identNode) out.write(" " + name(n));
+      else if (kind[n] == numberNode) out.write(" " + value(n));
+      out.writeLine();
+      if (d == path.length) path = Arrays.copyOf(path, 2 * d);
+      path[d++] = n;
+      n = child[n];
+    }
+  } // DeclTree.write
+
+} // DeclTree
@@ -1,6 +1,10 @@
 package library;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
 
 // Release 1: 2004/06/21
 // Release 2: 2008/11/21
@@ -15,7 +19,7 @@ public class InFile {
   final static char CR = '\r';
   final static char LF = '\n';
 
-  static boolean okay = false;    // module-wide error flag for simplicity
+  boolean okay = false;           // error flag for the last method called on this file
 
   char savedChar;
   boolean eof, eol, openFailure, inError, haveCh, noData, printErrors, fromDisk;
@@ -34,7 +38,26 @@ public class InFile {
 
 /* Java 1.0 wraps System.in */
 
+  // A file opened with InFile(fileName, mapped) is read as ISO-8859-1, one
+  // byte to a character, whether it is mapped or not, so that both give the
+  // same characters (and positions); otherwise the platform charset is used
+
+  final static Charset LATIN1 = StandardCharsets.ISO_8859_1;
+
   Reader inReader;
+  ByteBuffer mappedBuf;     // whole file, when opened with mapped == true
+  int mappedPos;
+
+  // Characters are fetched a block at a time, with CR+LF mapping and ^Z
+  // detection done over the whole block, so that nextChar() usually costs
+  // no more than an array access
+
+  final static int BLOCKSIZE = 8192;
+
+  char[] block = new char[BLOCKSIZE];
+  int blockPos, blockLen;   // next character to be served, and end of block
+  boolean afterCR,          // last raw character was a CR that has been dropped
+          endSeen;          // ^Z or end of data reached while filling
 
   public static final InFile StdIn = new InFile();
 
@@ -49,20 +72,50 @@ public class InFile {
   public InFile(String fileName) {
   // Creates an InFile from named file
   // (reverts to StdIn if it fails)
+    open(fileName, Charset.defaultCharset());
+  }
+
+  public InFile(String fileName, boolean mapped) {
+  // Creates an InFile from named file, memory mapping it if mapped is true.
+  // The file is read as ISO-8859-1 (so plain ASCII) text either way.  A mapped
+  // file is read byte by byte, and may also be walked by index through
+  // buffer().  Files that cannot be mapped (as those of 2 GB or more cannot)
+  // are opened as usual (reverting to StdIn if that fails too)
+    if (fileName != null) fileName = fileName.trim();
+    if (mapped && fileName != null && !fileName.equals("")) {
+      init(fileName);
+      try (FileChannel fc = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+        if (fc.size() <= Integer.MAX_VALUE) {
+          mappedBuf = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+          fromDisk = true;
+          eof = eol = mappedBuf.limit() == 0;
+          return;
+        }
+      }
+      catch (IOException e) {
+        // fall through and report the failure from the ordinary open below
+      }
+    }
+    open(fileName, LATIN1);
+  }
+
+  private void open(String fileName, Charset charset) {
+  // Called by the file name constructors to open fileName through a Reader
+  // that decodes charset
     if (fileName != null) fileName = fileName.trim();
     if (fileName != null && fileName.equals("")) {
       init("StdIn");
-      inReader = new InputStreamReader(System.in);
+      inReader = new InputStreamReader(System.in, charset);
     }
     else {
       init(fileName); fromDisk = true;
       try {
-        inReader = new BufferedReader(new FileReader(fileName));
+        inReader = new BufferedReader(new FileReader(fileName, charset));
         probe();
       }
       catch (IOException e) {
         System.err.println("InFile(" + fileName + ") failed - redirected to System.in");
-        inReader = new InputStreamReader(System.in);
+        inReader = new InputStreamReader(System.in, charset);
         name = "StdIn"; openFailure = true; okay = false;
       }
     }
@@ -82,21 +135,44 @@ public class InFile {
     }
   }
 
+  private boolean fill() throws IOException {
+  // Refills the block from the mapped file or reader.  A CR is dropped and the
+  // character after it taken as is (so CR+LF becomes LF), and ^Z ends the data.
+  // Returns false if there is nothing more to be had
+    blockPos = blockLen = 0;
+    while (blockLen == 0 && !endSeen) {
+      int n;
+      if (mappedBuf == null) n = inReader.read(block, 0, BLOCKSIZE);
+      else {
+        n = Math.min(BLOCKSIZE, mappedBuf.limit() - mappedPos);
+        for (int i = 0; i < n; i++) block[i] = (char) (mappedBuf.get(mappedPos + i) & 0xFF);
+        mappedPos += n;
+      }
+      if (n <= 0) { endSeen = true; break; }
+      int j = 0;
+      for (int i = 0; i < n; i++) {
+        char c = block[i];
+        if (c == CR && !afterCR) { afterCR = true; continue; }
+        afterCR = false;
+        if (c == 26) { endSeen = true; break; }
+        block[j++] = c;
+      }
+      blockLen = j;
+    }
+    return blockLen > 0;
+  }
+
   private void probe() {
-  // check for empty file
+  // check for empty file (the first block is read, so CR+LF mapping applies
+  // from the very first character)
    try {
-     int i = inReader.read();
-     if (i == -1) {
+     if (!fill()) {
        eof = true; eol = true; haveCh = false;
      }
-     else {
-      haveCh = true; savedChar = (char) i;
-      eol = i == CR || i == LF;
-     }
+     else eol = block[0] == LF;
     }
     catch (IOException e) {
-      System.err.println("Error reading " + name); System.exit(1);
-      /* fudge compiler fussiness! */
+      throw new InFileException("Error reading " + name, e);
     }
   } // probe
 
@@ -104,7 +180,7 @@ public class InFile {
   // Closes this file
   // Unfortunately there seems no simple way to get the InFile to Close automagically
     try {
-      inReader.close();
+      if (inReader != null) inReader.close();
     }
     catch (IOException e) {
       System.err.println("Failed to close input file " + name);
@@ -174,24 +250,18 @@ public class InFile {
       char ch;
       if (haveCh) { ch = savedChar; okay = ch != '\0'; }
       else if (eof) { ch = '\0'; okay = false; }  // been there already
-      else {                                      // get on with it
-        int i = inReader.read(); okay = true;
-        if (i == CR) { i = inReader.read(); }     // MS-DOS
-        ch = (char) i;
-        if (i == -1 | i == 26) { ch = '\0'; eof = true; }   // there was no character after all
+      else if (blockPos < blockLen || fill()) {   // get on with it
+        ch = block[blockPos++]; okay = true;
       }
+      else { ch = '\0'; eof = true; okay = true; }  // there was no character after all
       savedChar = ch; haveCh = false;
       eol = eof || ch == LF;                      // eof also sets eol
       inError = ! okay;
-      if (!okay && printErrors) {
-        System.err.println("Attempt to read past eof");
-        System.exit(1);
-      }
+      if (!okay && printErrors) throw new InFileException("Attempt to read past eof");
       return ch;
     }
     catch (IOException e) {
-      System.err.println("Error reading " + name); System.exit(1);
-      /* fudge compiler fussiness! */ return('a');
+      throw new InFileException("Error reading " + name, e);
     }
   }
 
@@ -214,6 +284,11 @@ public class InFile {
 
   public char readChar() {
   // Reads and returns a single character
+    if (blockPos < blockLen && !haveCh && !inError) {
+      char ch = block[blockPos++];                // the common case, straight from the block
+      savedChar = ch; eol = ch == LF; okay = true;
+      return ch;
+    }
     char ch = nextChar();
     noData = eof;
     if (noData) reportError("readChar failed - no more data");
@@ -236,10 +311,7 @@ public class InFile {
   public void readLn() {
   // Consumes all character to end of line.
   // Then probe for non-interactive files in case it reached EOF
-    if (eof && printErrors) {
-      System.err.println("ReadLn attempting to read past eof");
-      System.exit(1);
-    }
+    if (eof && printErrors) throw new InFileException("ReadLn attempting to read past eof");
     while (!eol) readChar();
     haveCh = false; eol = false;
     if (fromDisk && !eof) {
@@ -506,6 +578,12 @@ public class InFile {
     return this.noData;
   }
 
+  public ByteBuffer buffer() {
+  // Returns a view of the whole file if it was memory mapped (null otherwise),
+  // so that a scanner can walk it directly by index
+    return mappedBuf == null ? null : mappedBuf.duplicate();
+  }
+
   public String fileName() {
   // Returns the file name for the file
     return this.name;
@@ -529,9 +607,9 @@ public class InFile {
     return this.errorCount;
   }
 
-  public static boolean done() {
-  // Simple error checking - reports result for last method called
-  // regardless of which file was accessed
+  public boolean done() {
+  // Simple error checking - reports result for last method called on this file.
+  // (The flag was once shared by all files, which kept them to one thread)
     return okay;
   }
 
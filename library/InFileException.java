@@ -0,0 +1,18 @@
+package library;
+
+public class InFileException extends RuntimeException {
+// Thrown by InFile when its file cannot be read, or (when printErrors is set)
+// on an attempt to read past the end of it.  The program is not ended, so that
+// a long running caller can report the failure and go on with the next file
+
+  private static final long serialVersionUID = 1L;
+
+  public InFileException(String message) {
+    super(message);
+  } // InFileException
+
+  public InFileException(String message, Throwable cause) {
+    super(message, cause);
+  } // InFileException
+
+} // InFileException
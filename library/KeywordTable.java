@@ -0,0 +1,110 @@
+package library;
+
+import java.nio.*;
+import java.util.*;
+
+public class KeywordTable {
+// Minimal perfect hash table for recognising reserved words in a scanner.
+// The table is generated when it is constructed, so the set of words can be
+// changed freely; recognising a word (or rejecting an identifier) then costs
+// one hash of its length, first, middle and last characters and at most one
+// comparison, with no String being created.
+
+  String[] words;     // words[slot] hashes to slot
+  int[] kinds;        // value returned for words[slot]
+  int[] disp;         // displacement chosen for each bucket
+  int notFound;       // value returned for anything else
+
+  public KeywordTable(String[] words, int[] kinds, int notFound) {
+  // Generates the table for words, where words[i] is to be reported as kinds[i]
+  // and anything else as notFound
+    int n = words.length;
+    this.words = new String[n];
+    this.kinds = new int[n];
+    this.disp = new int[Math.max(1, n / 2)];
+    this.notFound = notFound;
+    // sort the words into buckets, and place the fullest buckets first
+    List<List<Integer>> buckets = new ArrayList<List<Integer>>();
+    for (int b = 0; b < disp.length; b++) buckets.add(new ArrayList<Integer>());
+    for (int i = 0; i < n; i++) buckets.get(mix(key(words[i]), 0) % disp.length).add(i);
+    Integer[] order = new Integer[disp.length];
+    for (int b = 0; b < order.length; b++) order[b] = b;
+    Arrays.sort(order, (x, y) -> buckets.get(y).size() - buckets.get(x).size());
+    // then find a displacement that sends each bucket to free slots only
+    for (int b : order) {
+      List<Integer> bucket = buckets.get(b);
+      int[] slots = new int[bucket.size()];
+      for (int d = 1; ; d++) {
+        if (d == 1 << 20)
+          throw new IllegalArgumentException("KeywordTable: " + words[bucket.get(0)]
+                                             + " cannot be told apart by its key characters");
+        boolean fits = true;
+        for (int j = 0; j < slots.length && fits; j++) {
+          slots[j] = mix(key(words[bucket.get(j)]), d) % n;
+          fits = this.words[slots[j]] == null;
+          for (int k = 0; k < j && fits; k++) fits = slots[k] != slots[j];
+        }
+        if (fits) {
+          disp[b] = d;
+          for (int j = 0; j < slots.length; j++) {
+            this.words[slots[j]] = words[bucket.get(j)];
+            this.kinds[slots[j]] = kinds[bucket.get(j)];
+          }
+          break;
+        }
+      }
+    }
+  } // KeywordTable
+
+  static int key(String s) {
+  // Packs the characters that the hash is computed from
+    int len = s.length();
+    return len == 0 ? 0 : key(len, s.charAt(0), s.charAt(len / 2), s.charAt(len - 1));
+  } // KeywordTable.key
+
+  static int key(int len, int first, int middle, int last) {
+    return ((len * 31 + first) * 31 + middle) * 31 + last;
+  } // KeywordTable.key
+
+  static int mix(int k, int d) {
+  // Scrambles key k with displacement d into a non-negative hash
+    int h = (k ^ d) * 0x9E3779B1;
+    return (h ^ (h >>> 15)) & 0x7FFFFFFF;
+  } // KeywordTable.mix
+
+  public int lookup(char[] buf, int off, int len) {
+  // Returns the kind of the word in buf[off .. off+len-1], or notFound
+    if (len == 0 || words.length == 0) return notFound;
+    int k = key(len, buf[off], buf[off + len / 2], buf[off + len - 1]);
+    int slot = mix(k, disp[mix(k, 0) % disp.length]) % words.length;
+    String word = words[slot];
+    if (word.length() != len) return notFound;
+    for (int i = 0; i < len; i++)
+      if (word.charAt(i) != buf[off + i]) return notFound;
+    return kinds[slot];
+  } // KeywordTable.lookup(char[])
+
+  public int lookup(ByteBuffer buf, int pos, int len) {
+  // Returns the kind of the word held as ASCII bytes at buf[pos .. pos+len-1],
+  // or notFound
+    if (len == 0 || words.length == 0) return notFound;
+    int k = key(len, buf.get(pos) & 0xFF, buf.get(pos + len / 2) & 0xFF, buf.get(pos + len - 1) & 0xFF);
+    int slot = mix(k, disp[mix(k, 0) % disp.length]) % words.length;
+    String word = words[slot];
+    if (word.length() != len) return notFound;
+    for (int i = 0; i < len; i++)
+      if (word.charAt(i) != buf.get(pos + i)) return notFound;
+    return kinds[slot];
+  } // KeywordTable.lookup(ByteBuffer)
+
+  public int lookup(String s) {
+  // Returns the kind of word s, or notFound
+    return lookup(s.toCharArray(), 0, s.length());
+  } // KeywordTable.lookup(String)
+
+  public int size() {
+  // Returns the number of words in the table
+    return words.length;
+  } // KeywordTable.size
+
+} // KeywordTable
@@ -0,0 +1,96 @@
+package library;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class LineIndex {
+// Maps offsets in a scanner's input to line and column numbers, so that
+// tokens need carry no more than their offset.  Nothing at all is done until
+// an offset is first asked about.  A mapped input is then searched for
+// newlines eight bytes at a time, only as far as that offset, and the starts
+// found are remembered for later questions; otherwise the file is read through
+// once more as InFile reads it, so that characters are counted exactly as the
+// scanner counted them.  Columns are counted in the same characters either
+// way: the CRs that InFile drops are skipped in a mapped input as well
+
+  ByteBuffer source;              // mapped input, or null
+  int end;                        // offsets beyond this are past the end of the input
+  int[] starts = new int[256];    // offset at which each line starts
+  int lines = 1;                  // lines whose start is known
+  int scanned;                    // offset up to which newlines have been found
+
+  public LineIndex(ByteBuffer source) {
+  // Creates an index for mapped input source
+    this.source = source.duplicate();
+    this.source.order(ByteOrder.LITTLE_ENDIAN);
+    end = this.source.limit();
+  } // LineIndex
+
+  public LineIndex(String fileName) {
+  // Creates an index for the named file, reading it as InFile reads it.
+  // Throws InFileException if it can no longer be read
+    try (Reader r = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.ISO_8859_1)) {
+      InFile input = new InFile(r, true);
+      for (char c = input.readChar(); !input.eof(); c = input.readChar()) {
+        scanned++;
+        if (c == '\n') addLine(scanned);
+      }
+    }
+    catch (IOException | InvalidPathException e) {
+      throw new InFileException("Could not read " + fileName + " again", e);
+    }
+    end = scanned;
+  } // LineIndex
+
+  void scanTo(int offset) {
+  // Finds the starts of all lines up to offset
+    if (source == null) return;   // all found when the file was read
+    int p = scanned, stop = Math.min(offset, end);
+    for ( ; p + 8 <= stop; p += 8) {
+      long nl = DeclScanner.zeroBytes(source.getLong(p) ^ DeclScanner.ONES * '\n');
+      while (nl != 0) {
+        addLine(p + (Long.numberOfTrailingZeros(nl) >>> 3) + 1);
+        nl &= nl - 1;
+      }
+    }
+    for ( ; p < stop; p++)
+      if (source.get(p) == '\n') addLine(p + 1);
+    scanned = Math.max(scanned, stop);
+  } // LineIndex.scanTo
+
+  void addLine(int start) {
+    if (lines == starts.length) starts = Arrays.copyOf(starts, 2 * lines);
+    starts[lines++] = start;
+  } // LineIndex.addLine
+
+  public int line(int offset) {
+  // Returns the number (from 1) of the line holding offset
+    scanTo(offset);
+    int lo = 0, hi = lines - 1;    // find the last line starting at or before offset
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (starts[mid] <= offset) lo = mid;
+      else hi = mid - 1;
+    }
+    return lo + 1;
+  } // LineIndex.line
+
+  public int column(int offset) {
+  // Returns the column (from 1) of offset within its line.  In a mapped input
+  // a CR is not counted, unless it follows a CR that was not counted either
+    int start = starts[line(offset) - 1];
+    if (source == null) return offset - start + 1;
+    int column = 1;
+    boolean afterCR = false;
+    for (int p = start; p < offset && p < end; p++) {
+      boolean dropped = source.get(p) == '\r' && !afterCR;
+      if (!dropped) column++;
+      afterCR = dropped;
+    }
+    return column;
+  } // LineIndex.column
+
+} // LineIndex
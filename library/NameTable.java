@@ -0,0 +1,119 @@
+package library;
+
+import java.nio.*;
+import java.util.*;
+
+public class NameTable {
+// Interning table that maps spellings to dense integer ids 0, 1, 2 ...
+// Spellings are hashed straight from the scanner's buffer (a char[] range or
+// ASCII bytes in a ByteBuffer) and looked up by open addressing, so a name that
+// has been seen before costs no allocation at all, and two names are the same
+// exactly when their ids are equal.
+
+  int[] slots = new int[256];      // id + 1 of the name in each slot, 0 if empty
+  int[] hashes = new int[128];     // hash of each name, by id
+  int[] starts = new int[128];     // where each name starts in chars
+  int[] lengths = new int[128];
+  String[] strings = new String[128];   // made when first asked for
+  char[] chars = new char[4096];   // spellings, one after another
+  int count, used;
+
+  public int enter(char[] buf, int off, int len) {
+  // Returns the id of the name in buf[off .. off+len-1], adding it if it is new
+    int h = 0;
+    for (int i = 0; i < len; i++) h = 31 * h + buf[off + i];
+    int mask = slots.length - 1;
+    for (int s = mix(h) & mask; ; s = (s + 1) & mask) {
+      int id = slots[s] - 1;
+      if (id < 0) return add(s, h, buf, off, len);
+      if (hashes[id] == h && lengths[id] == len && same(id, buf, off)) return id;
+    }
+  } // NameTable.enter(char[])
+
+  public int enter(ByteBuffer buf, int pos, int len) {
+  // Returns the id of the name held as ASCII bytes at buf[pos .. pos+len-1],
+  // adding it if it is new
+    int h = 0;
+    for (int i = 0; i < len; i++) h = 31 * h + (buf.get(pos + i) & 0xFF);
+    int mask = slots.length - 1;
+    for (int s = mix(h) & mask; ; s = (s + 1) & mask) {
+      int id = slots[s] - 1;
+      if (id < 0) {
+        ensureChars(len);
+        for (int i = 0; i < len; i++) chars[used + i] = (char) (buf.get(pos + i) & 0xFF);
+        return add(s, h, chars, used, len);
+      }
+      if (hashes[id] == h && lengths[id] == len && same(id, buf, pos)) return id;
+    }
+  } // NameTable.enter(ByteBuffer)
+
+  public int enter(String s) {
+  // Returns the id of name s, adding it if it is new
+    return enter(s.toCharArray(), 0, s.length());
+  } // NameTable.enter(String)
+
+  public String name(int id) {
+  // Returns the spelling of name id
+    if (strings[id] == null) strings[id] = new String(chars, starts[id], lengths[id]);
+    return strings[id];
+  } // NameTable.name
+
+  public int size() {
+  // Returns the number of distinct names entered so far
+    return count;
+  } // NameTable.size
+
+  static int mix(int h) {
+    h *= 0x9E3779B1;
+    return h ^ (h >>> 16);
+  } // NameTable.mix
+
+  private boolean same(int id, char[] buf, int off) {
+    int start = starts[id];
+    for (int i = lengths[id] - 1; i >= 0; i--)
+      if (chars[start + i] != buf[off + i]) return false;
+    return true;
+  } // NameTable.same(char[])
+
+  private boolean same(int id, ByteBuffer buf, int pos) {
+    int start = starts[id];
+    for (int i = lengths[id] - 1; i >= 0; i--)
+      if (chars[start + i] != (buf.get(pos + i) & 0xFF)) return false;
+    return true;
+  } // NameTable.same(ByteBuffer)
+
+  private void ensureChars(int len) {
+    if (used + len > chars.length) chars = Arrays.copyOf(chars, Math.max(2 * chars.length, used + len));
+  } // NameTable.ensureChars
+
+  private int add(int slot, int h, char[] buf, int off, int len) {
+  // Adds a new name in the empty slot, growing the table when half full
+    if (count == hashes.length) {
+      hashes = Arrays.copyOf(hashes, 2 * count);
+      starts = Arrays.copyOf(starts, 2 * count);
+      lengths = Arrays.copyOf(lengths, 2 * count);
+      strings = Arrays.copyOf(strings, 2 * count);
+    }
+    if (buf != chars || off != used) {   // ByteBuffer names are already in place
+      ensureChars(len);
+      System.arraycopy(buf, off, chars, used, len);
+    }
+    int id = count++;
+    hashes[id] = h; starts[id] = used; lengths[id] = len;
+    used += len;
+    slots[slot] = id + 1;
+    if (2 * count > slots.length) rehash();
+    return id;
+  } // NameTable.add
+
+  private void rehash() {
+    slots = new int[2 * slots.length];
+    int mask = slots.length - 1;
+    for (int id = 0; id < count; id++) {
+      int s = mix(hashes[id]) & mask;
+      while (slots[s] != 0) s = (s + 1) & mask;
+      slots[s] = id + 1;
+    }
+  } // NameTable.rehash
+
+} // NameTable
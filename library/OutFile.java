@@ -1,6 +1,9 @@
 package library;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
 
 // Release 1: 2004/06/21
 // Release 2: 2008/11/21
@@ -16,9 +19,23 @@ public class OutFile {
   public static final OutFile StdOut = new OutFile();
   public static final OutFile StdErr = new OutFile(new PrintWriter(new OutputStreamWriter(System.err), true));
 
+  // Flush policies.  FLUSH_ALWAYS is the original behaviour; the others let
+  // large reflected listings be written without a flush per character
+
+  public static final int
+    FLUSH_ALWAYS     = 0,   // flush after every write
+    FLUSH_ON_CLOSE   = 1,   // flush only when closed (or when flush() is called)
+    FLUSH_ON_NEWLINE = 2,   // flush after every line
+    FLUSH_ON_ERROR   = 3,   // flush when flushError() is called
+    FLUSH_EVERY      = 4;   // flush after every flushLimit characters
+
   boolean openFailure;
   PrintWriter outWriter;
+  FileChannel outChannel;   // underlying channel of a disk file, for writeRange
   String fileName;
+  int flushPolicy = FLUSH_ALWAYS, flushLimit = 8192, unflushed = 0;
+  Charset charset = Charset.defaultCharset();   // encoding of a disk file
+  OnExit onExit;            // closes the file at exit if close() is never called
 
   class OnExit extends Thread {
     public void run() {
@@ -38,14 +55,47 @@ public class OutFile {
   public OutFile(String fileName) {
   // Creates an OutFile to named disk file
   // (reverts to StdOut if it fails)
+    open(fileName);
+  }
+
+  public OutFile(String fileName, int flushPolicy) {
+  // Creates an OutFile to named disk file that flushes according to flushPolicy
+  // (reverts to StdOut if it fails)
+    this.flushPolicy = flushPolicy;
+    open(fileName);
+  }
+
+  public OutFile(String fileName, int flushPolicy, int flushLimit) {
+  // Creates an OutFile to named disk file that flushes according to flushPolicy,
+  // using flushLimit as the character count for FLUSH_EVERY
+  // (reverts to StdOut if it fails)
+    this.flushPolicy = flushPolicy;
+    this.flushLimit = Math.max(1, flushLimit);
+    open(fileName);
+  }
+
+  public OutFile(String fileName, int flushPolicy, Charset charset) {
+  // Creates an OutFile to named disk file that flushes according to flushPolicy,
+  // and encodes characters in charset rather than the platform's charset
+  // (reverts to StdOut if it fails)
+    this.flushPolicy = flushPolicy;
+    this.charset = charset;
+    open(fileName);
+  }
+
+  private void open(String fileName) {
+  // Called by the file constructors to attach the hidden PrintWriter
     openFailure = false;
     if (fileName != null) fileName = fileName.trim();
     if (fileName != null && fileName.equals(""))
       outWriter = new PrintWriter(new OutputStreamWriter(System.out), true);
     else {
       try {
-        outWriter = new PrintWriter(new BufferedWriter(new FileWriter(fileName)), true);
-        Runtime.getRuntime().addShutdownHook(new OnExit());
+        FileOutputStream outStream = new FileOutputStream(fileName);
+        outChannel = outStream.getChannel();
+        outWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(outStream, charset), 1 << 16),
+                                    flushPolicy == FLUSH_ALWAYS);
+        Runtime.getRuntime().addShutdownHook(onExit = new OnExit());
         this.fileName = fileName;
       }
       catch (IOException e) {
@@ -66,7 +116,7 @@ public class OutFile {
       outWriter = new PrintWriter(new OutputStreamWriter(System.out), true);
     } else {
       outWriter = s;
-      Runtime.getRuntime().addShutdownHook(new OnExit());
+      Runtime.getRuntime().addShutdownHook(onExit = new OnExit());
       this.fileName = "output stream";
     }
   }
@@ -75,7 +125,87 @@ public class OutFile {
   // Closes the file
   // Unfortunately there seems no simple way to get the OutFile to close automagically
   // Well - I was wrong!  see OnExit
+  // Once closed the hook is removed again, so that a program opening many files
+  // in turn does not keep every one of them reachable until it exits
     outWriter.close();
+    if (onExit != null)
+      try {
+        Runtime.getRuntime().removeShutdownHook(onExit);
+      }
+      catch (IllegalStateException e) {   // already exiting
+      }
+    onExit = null;
+  }
+
+  public void flush() {
+  // Forces out anything still buffered, regardless of the flush policy
+    outWriter.flush(); unflushed = 0;
+  }
+
+  public void flushError() {
+  // Called after an error message has been written, so that it reaches the
+  // file promptly unless the policy defers everything to close()
+    if (flushPolicy != FLUSH_ON_CLOSE) flush();
+  }
+
+  public void writeRange(FileChannel src, long position, long count) {
+  // Copies count bytes of src, starting at position, to this file without
+  // decoding them.  Pending text is flushed first so that the order is kept
+    flush();
+    try {
+      if (outChannel != null)
+        while (count > 0) {
+          long n = src.transferTo(position, count, outChannel);
+          if (n <= 0) break;
+          position += n; count -= n;
+        }
+      else {                                      // StdOut - no channel to transfer to
+        ByteBuffer bytes = ByteBuffer.allocate(8192);
+        char[] chars = new char[8192];
+        while (count > 0) {
+          bytes.clear();
+          if (count < bytes.capacity()) bytes.limit((int) count);
+          int n = src.read(bytes, position);
+          if (n <= 0) break;
+          for (int i = 0; i < n; i++) chars[i] = (char) (bytes.get(i) & 0xFF);
+          outWriter.write(chars, 0, n);
+          position += n; count -= n;
+        }
+        flush();
+      }
+    }
+    catch (IOException e) {
+      System.err.println("OutFile.writeRange failed - " + e.getMessage());
+    }
+  }
+
+  public void writeRange(ByteBuffer src, int position, int count) {
+  // Writes count bytes of src, starting at position, to this file, each byte
+  // taken as a Latin-1 character (as writeRange above copies a file)
+    char[] chars = new char[Math.min(count, 8192)];
+    while (count > 0) {
+      int n = Math.min(count, chars.length);
+      for (int i = 0; i < n; i++) chars[i] = (char) (src.get(position + i) & 0xFF);
+      write(chars, 0, n);
+      position += n; count -= n;
+    }
+  }
+
+  private void written(int n) {
+  // Applies the flush policy after n more characters have been written
+    switch (flushPolicy) {
+      case FLUSH_ALWAYS : outWriter.flush(); break;
+      case FLUSH_EVERY  : unflushed += n;
+                          if (unflushed >= flushLimit) flush();
+                          break;
+    }
+  }
+
+  private void lineWritten(int n) {
+  // Applies the flush policy after a line of n characters has been completed
+  // (with FLUSH_ALWAYS the PrintWriter has already flushed it)
+    if (flushPolicy == FLUSH_ON_NEWLINE) flush();
+    else if (flushPolicy == FLUSH_EVERY) written(n + 1);
   }
 
 
@@ -126,8 +256,8 @@ public class OutFile {
   // The following methods mostly simply map the operations onto the hidden
   // PrintWriter, and provide the standard functionality of that PrintWriter
 
-  public void write(String o)                 { outWriter.print(o); outWriter.flush(); }
-  public void write(Object o)                 { outWriter.print(o); outWriter.flush(); }
+  public void write(String o)                 { outWriter.print(o); written(o == null ? 4 : o.length()); }
+  public void write(Object o)                 { write(String.valueOf(o)); }
   public void write(byte o)                   { write(o, 0); }
   public void write(short o)                  { write(o, 0); }
   public void write(int o)                    { write(o, 0); }
@@ -135,14 +265,16 @@ public class OutFile {
   public void write(boolean o)                { write(o, 0); }
   public void write(float o)                  { write(o, 0); }
   public void write(double o)                 { write(o, 0); }
-  public void write(char o)                   { outWriter.print(o); outWriter.flush(); }
-  public void write(char[] o)                 { outWriter.print(o); outWriter.flush(); }
+  public void write(char o)                   { outWriter.write(o);
+                                                if (o == '\n' && flushPolicy == FLUSH_ON_NEWLINE) flush();
+                                                else written(1); }
+  public void write(char[] o)                 { outWriter.write(o, 0, o.length); written(o.length); }
   public void write(char[] o, int off,
-                    int len)                  { outWriter.write(o, off, len); outWriter.flush(); }
+                    int len)                  { outWriter.write(o, off, len); written(len); }
 
-  public void writeLine()                     { outWriter.println(); }
-  public void writeLine(String o)             { outWriter.println(o); }
-  public void writeLine(Object o)             { outWriter.println(o); }
+  public void writeLine()                     { outWriter.println(); lineWritten(0); }
+  public void writeLine(String o)             { outWriter.println(o); lineWritten(o == null ? 4 : o.length()); }
+  public void writeLine(Object o)             { writeLine(String.valueOf(o)); }
   public void writeLine(byte o)               { writeLine(o, 0); }
   public void writeLine(short o)              { writeLine(o, 0); }
   public void writeLine(int o)                { writeLine(o, 0); }
@@ -150,10 +282,11 @@ public class OutFile {
   public void writeLine(boolean o)            { writeLine(o, 0); }
   public void writeLine(float o)              { writeLine(o, 0); }
   public void writeLine(double o)             { writeLine(o, 0); }
-  public void writeLine(char o)               { outWriter.println(o); }
-  public void writeLine(char[] o)             { outWriter.println(o); outWriter.flush(); }
+  public void writeLine(char o)               { outWriter.println(o); lineWritten(1); }
+  public void writeLine(char[] o)             { outWriter.println(o); lineWritten(o.length); }
   public void writeLine(char[] o, int off,
-                        int len)              { outWriter.write(o, off, len); outWriter.println(); outWriter.flush(); }
+                        int len)              { outWriter.write(o, off, len); outWriter.println();
+                                                lineWritten(len); }
 
   private void putStr(String s, int width) {
     if (width == 0) outWriter.print(" " + s);
@@ -165,7 +298,7 @@ public class OutFile {
       outWriter.print(s);
       for (int i = s.length(); i < -width; i++) outWriter.print(' ');
     }
-    outWriter.flush();
+    written(Math.max(s.length(), Math.abs(width)));
   }
 
   public void write(String o, int width)      { putStr(o, width); }
@@ -190,6 +323,7 @@ public class OutFile {
       for (int i = s.length(); i < -width; i++) outWriter.print(' ');
       outWriter.println();
     }
+    lineWritten(Math.max(s.length(), Math.abs(width)));
   }
 
   public void writeLine(String o, int width)  { putLine(o, width); }
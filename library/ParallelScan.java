@@ -0,0 +1,184 @@
+package library;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ParallelScan {
+// Scans a large mapped file (under 2 GB, as mapped inputs are) in parallel,
+// delivering exactly the tokens that a single DeclScanner would.  The file is
+// cut into chunks, preferably where a line starts with TYPE or VAR, and each
+// chunk is scanned by a fork-join task on the speculation that it starts
+// outside any comment.  Between tokens the only state of a scanner is its
+// position, so once the scan of one chunk reaches a token that the next
+// chunk's scan also found, the two agree from there on.  take() stitches the
+// chunks together at such a token; where the speculation was wrong (a chunk
+// began inside a comment, say) the previous chunk's scanner simply carries on
+// until it does agree, or across the whole chunk if need be.  Only a window of
+// chunks is scanned ahead of the parser.
+//
+// Identifiers are renumbered as they are taken, so that name ids are those a
+// single scanner would have given, and all refer to the first chunk's names
+
+  static class Chunk extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    final ParallelScan owner;
+    final ByteBuffer source;
+    final int start, end;         // tokens starting in start .. end-1 belong here
+    DeclScanner scanner;
+    TokenList tokens;
+    Token pending;                // first token found at or beyond end, if any
+    int pendingAfter;
+    Chunk then;                   // chunk to go on with once tokens are used up
+    int[] ids = new int[64];      // global name id + 1 for each local one
+
+    Chunk(ParallelScan owner, ByteBuffer source, int start, int end) {
+      this.owner = owner;
+      this.source = source;
+      this.start = start;
+      this.end = end;
+    } // Chunk
+
+    protected void compute() {
+      scanner = new DeclScanner(source, start);
+      tokens = new TokenList(scanner);
+      Token t = new Token();
+      while (true) {
+        scanner.next(t);
+        if (t.pos >= end) {
+          pending = t;
+          pendingAfter = scanner.position();
+          return;
+        }
+        tokens.add(t, scanner.position());
+        if (t.kind == DeclScanner.EOFSym || t.kind == DeclScanner.noSym || owner.cancelled) return;
+      }
+    } // Chunk.compute
+
+  } // Chunk
+
+  final ByteBuffer source;
+  final int chunkSize, window;
+  int nextStart;                  // where the next chunk to be scanned starts
+  ArrayDeque<Chunk> ahead = new ArrayDeque<Chunk>();  // chunks being scanned, in order
+  Chunk first, cur;               // chunk whose names are used for all, and chunk being taken from
+  volatile boolean cancelled;     // the parser wants no more tokens
+
+  public ParallelScan(ByteBuffer source, int chunkSize) {
+  // Starts scanning source (a mapped file) in chunks of about chunkSize bytes
+    this.source = source;
+    this.chunkSize = Math.max(chunkSize, 1);
+    window = 2 * ForkJoinPool.getCommonPoolParallelism() + 1;
+    while (ahead.size() < window && nextStart >= 0) submit();
+    first = cur = nextChunk();
+  } // ParallelScan
+
+  void submit() {
+  // Starts the scan of the next chunk
+    int start = nextStart, end = split(start + chunkSize);
+    nextStart = end < source.limit() ? end : -1;
+    Chunk c = new Chunk(this, source, start, end < source.limit() ? end : Integer.MAX_VALUE);
+    ForkJoinPool.commonPool().execute(c);
+    ahead.add(c);
+  } // ParallelScan.submit
+
+  int split(int p) {
+  // Returns where a chunk that is to end near p should end - at the first
+  // line after p that starts with TYPE or VAR, if one comes soon enough
+    int limit = source.limit();
+    if (p >= limit) return limit;
+    for (int q = p, stop = (int) Math.min((long) p + chunkSize, limit - 5); q < stop; q++)
+      if (source.get(q) == '\n' && (startsWith(q + 1, "TYPE") || startsWith(q + 1, "VAR"))) return q + 1;
+    return p;
+  } // ParallelScan.split
+
+  boolean startsWith(int p, String word) {
+  // True if word is spelled at p, and is not just the start of a longer name
+    int n = word.length();
+    if (p + n >= source.limit()) return false;
+    for (int i = 0; i < n; i++)
+      if (source.get(p + i) != word.charAt(i)) return false;
+    byte b = source.get(p + n);
+    return !(b >= 'A' && b <= 'Z' || b >= 'a' && b <= 'z' || b >= '0' && b <= '9' || b < 0);
+  } // ParallelScan.startsWith
+
+  Chunk nextChunk() {
+  // Waits for the scan of the next chunk, keeping the window full; null if
+  // there are no more chunks
+    Chunk c = ahead.poll();
+    if (c == null) return null;
+    c.join();
+    if (nextStart >= 0) submit();
+    return c;
+  } // ParallelScan.nextChunk
+
+  public void take(Token t) {
+  // Fills t with the next token, exactly as DeclScanner.next would have
+    while (!cur.tokens.more()) {
+      if (cur.then != null) cur = cur.then;
+      else if (cur.pending != null) stitch();
+      else break;               // the end of the input (or an error) was reached
+    }
+    cur.tokens.take(t);
+    t.scanner = first.scanner;
+    if (t.id >= 0) t.id = globalId(cur, t.id);
+  } // ParallelScan.take
+
+  void stitch() {
+  // cur is used up but for its pending token: find where the next chunk
+  // agrees with it, scanning on with cur's scanner until it does
+    Chunk k = nextChunk();
+    Token t = cur.pending;
+    int after = cur.pendingAfter;
+    cur.pending = null;
+    cur.tokens.clear();
+    while (true) {
+      int j = k == null ? -1 : k.tokens.find(t.pos);
+      if (j >= 0) {
+        k.tokens.next = j;
+        cur.then = k;
+        return;
+      }
+      if (k != null && t.pos >= k.end) {
+        // cur has covered all of k without agreeing; go on to the next chunk
+        cur.pending = t;
+        cur.pendingAfter = after;
+        return;
+      }
+      cur.tokens.add(t, after);
+      if (t.kind == DeclScanner.EOFSym || t.kind == DeclScanner.noSym) return;
+      cur.scanner.next(t);
+      after = cur.scanner.position();
+    }
+  } // ParallelScan.stitch
+
+  int globalId(Chunk c, int id) {
+  // Returns the id in the first chunk's names of name id of chunk c, entering
+  // it there when it is first met
+    if (c == first) return id;
+    if (id >= c.ids.length) c.ids = Arrays.copyOf(c.ids, Math.max(2 * c.ids.length, id + 1));
+    if (c.ids[id] == 0) c.ids[id] = first.scanner.names.enter(c.scanner.name(id)) + 1;
+    return c.ids[id] - 1;
+  } // ParallelScan.globalId
+
+  public void cancel() {
+  // Stops the scans of the chunks ahead, once the parser wants no more tokens
+  // (as when an error has ended the parse); those not yet started are never
+  // run, and those running stop at their next token
+    cancelled = true;
+    for (Chunk c : ahead) c.cancel(false);
+  } // ParallelScan.cancel
+
+  public int position() {
+  // Returns the scanner position (see DeclScanner.position) just after the
+  // token taken last was scanned
+    return cur.tokens.position();
+  } // ParallelScan.position
+
+  public String error() {
+  // Returns a description of the error that ended the token stream
+    return cur.scanner.error();
+  } // ParallelScan.error
+
+} // ParallelScan
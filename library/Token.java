@@ -0,0 +1,43 @@
+package library;
+
+public class Token {
+// A token delivered by DeclScanner.  One Token is normally reused for every
+// token scanned: it records where the token lies, and the value of a number,
+// and only makes a String of the spelling if val() is called
+
+  public int kind;
+  public int pos, len;        // where the token lies in the input
+  public int id = -1;         // name id of an identifier, otherwise -1
+  public long value;          // value of a number (or character code) literal
+  DeclScanner scanner;        // scanner that produced the token, if any
+  private String val;         // spelling, made on demand
+
+  public Token() {
+  } // Token
+
+  public Token(int kind, String val) {
+    this.kind = kind;
+    this.val = val;
+    this.len = val.length();
+  } // Token
+
+  void set(int kind, int pos, int len, DeclScanner scanner) {
+  // Reuses this token for the next one scanned
+    this.kind = kind;
+    this.pos = pos;
+    this.len = len;
+    this.id = -1;
+    this.value = 0;
+    this.val = null;
+    this.scanner = scanner;
+  } // Token.set
+
+  public String val() {
+  // Returns the spelling; for a reused token this must be asked for before the
+  // next token is scanned, unless it is an identifier
+    if (val == null)
+      val = id >= 0 ? scanner.name(id) : scanner.spelling(pos, len);
+    return val;
+  } // Token.val
+
+} // Token
@@ -0,0 +1,81 @@
+package library;
+
+import java.util.*;
+
+public class TokenList {
+// Growable list of scanned tokens, packed seven ints apiece like a TokenRing
+// (kind, pos, len, name id, the scanner position after the token, and the
+// value as two ints), and
+// read back in order by take()
+
+  static final int FIELDS = TokenRing.FIELDS;
+
+  int[] tokens = new int[256 * FIELDS];
+  int count, next;                // tokens held, and index of the next to be taken
+  int after;                      // scanner position after the token taken last
+  DeclScanner scanner;            // scanner whose names the ids refer to
+
+  public TokenList(DeclScanner scanner) {
+    this.scanner = scanner;
+  } // TokenList
+
+  public void add(Token t, int after) {
+  // Appends token t, scanned with the scanner then at position after
+    if ((count + 1) * FIELDS > tokens.length) tokens = Arrays.copyOf(tokens, 2 * tokens.length);
+    int i = count * FIELDS;
+    tokens[i] = t.kind;
+    tokens[i + 1] = t.pos;
+    tokens[i + 2] = t.len;
+    tokens[i + 3] = t.id;
+    tokens[i + 4] = after;
+    tokens[i + 5] = (int) t.value;
+    tokens[i + 6] = (int) (t.value >>> 32);
+    count++;
+  } // TokenList.add
+
+  public void take(Token t) {
+  // Fills t with the next token; once the list is used up the last token is
+  // delivered again
+    if (next == count) next = count - 1;
+    int i = next++ * FIELDS;
+    t.set(tokens[i], tokens[i + 1], tokens[i + 2], scanner);
+    t.id = tokens[i + 3];
+    after = tokens[i + 4];
+    t.value = tokens[i + 5] & 0xFFFFFFFFL | (long) tokens[i + 6] << 32;
+  } // TokenList.take
+
+  public int position() {
+  // Returns the scanner position (see DeclScanner.position) just after the
+  // token taken last was scanned
+    return after;
+  } // TokenList.position
+
+  public int size() {
+  // Returns the number of tokens in the list
+    return count;
+  } // TokenList.size
+
+  public boolean more() {
+  // Returns true if there are tokens still to be taken
+    return next < count;
+  } // TokenList.more
+
+  public void clear() {
+  // Empties the list
+    count = next = 0;
+  } // TokenList.clear
+
+  int find(int pos) {
+  // Returns the index of the token that starts at pos, or -1 if there is none
+  // (positions increase along the list)
+    int lo = 0, hi = count - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1, p = tokens[mid * FIELDS + 1];
+      if (p == pos) return mid;
+      if (p < pos) lo = mid + 1;
+      else hi = mid - 1;
+    }
+    return -1;
+  } // TokenList.find
+
+} // TokenList
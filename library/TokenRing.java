@@ -0,0 +1,136 @@
+package library;
+
+public class TokenRing {
+// Single-producer, single-consumer ring of scanned tokens, so that a scanner
+// thread can run ahead of the parser.  Tokens are packed seven ints apiece into
+// one int array.  The producer publishes them a batch at a time by advancing a
+// volatile tail, and the consumer hands slots back by advancing a volatile
+// head, so neither side ever takes a lock; a side that finds the ring full (or
+// empty) spins briefly and then yields until the other catches up.
+//
+// Tokens taken from the ring carry their kind, position, length, name id and
+// value.
+// The spelling of an identifier (Token.val()) should only be asked for once
+// the scanner thread has finished, as the name table is still growing until
+// then
+
+  static final int FIELDS = 7;    // kind, pos, len, id, scanner position after it, value (two ints)
+
+  final int[] slots;
+  final int capacity, batch;
+
+  // The fields written by each side are kept apart by padding, so that the two
+  // threads do not keep taking the same cache line from each other
+
+  volatile long head;             // tokens taken by the consumer
+  long taken, tailSeen, released; // consumer's own count, the tail it last saw, and head it last set
+  long pad1, pad2, pad3, pad4, pad5, pad6, pad7, pad8;
+  volatile long tail;             // tokens published by the producer
+  long written, published, headSeen;  // producer's own count, the tail it last set, and head it last saw
+  long pad9, pad10, pad11, pad12, pad13, pad14, pad15, pad16;
+  int after;                      // scanner position after the token taken last
+  boolean ended;                  // EOF (or an invalid token) has been taken
+  volatile boolean cancelled;     // the consumer wants no more tokens
+
+  DeclScanner scanner;
+
+  public TokenRing(DeclScanner scanner, int capacity, int batch) {
+  // Creates a ring of at least capacity tokens, published and released batch
+  // tokens at a time
+    int c = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    this.scanner = scanner;
+    this.capacity = c;
+    this.batch = Math.max(1, Math.min(batch, c / 2));
+    slots = new int[c * FIELDS];
+  } // TokenRing
+
+  public static TokenRing start(DeclScanner scanner, int capacity, int batch) {
+  // Creates a ring, and a daemon thread that fills it from scanner until the
+  // end of the input or an invalid token is reached
+    final TokenRing ring = new TokenRing(scanner, capacity, batch);
+    Thread t = new Thread(new Runnable() {
+      public void run() {
+        Token sym = new Token();
+        do {
+          scanner.next(sym);
+          ring.put(sym, scanner.position());
+        } while (sym.kind != DeclScanner.EOFSym && sym.kind != DeclScanner.noSym && !ring.cancelled);
+        ring.publish();
+      }
+    }, "scanner");
+    t.setDaemon(true);
+    t.start();
+    return ring;
+  } // TokenRing.start
+
+  // +++++++++++++++++++++++++ Producer side
+
+  public void put(Token t, int after) {
+  // Adds token t, scanned with the scanner then at position after
+    if (written - headSeen == capacity) {
+      publish();
+      for (int spins = 0; written - (headSeen = head) == capacity; spins++) {
+        if (cancelled) return;
+        pause(spins);
+      }
+    }
+    int i = (int) (written & (capacity - 1)) * FIELDS;
+    slots[i] = t.kind;
+    slots[i + 1] = t.pos;
+    slots[i + 2] = t.len;
+    slots[i + 3] = t.id;
+    slots[i + 4] = after;
+    slots[i + 5] = (int) t.value;
+    slots[i + 6] = (int) (t.value >>> 32);
+    written++;
+    if (written - published >= batch) tail = published = written;
+  } // TokenRing.put
+
+  public void publish() {
+  // Makes every token added so far visible to the consumer
+    tail = published = written;
+  } // TokenRing.publish
+
+  // +++++++++++++++++++++++++ Consumer side
+
+  public void cancel() {
+  // Tells the producer that no more tokens will be taken (the parse has been
+  // abandoned, say), so that its thread ends instead of waiting for room
+    cancelled = true;
+  } // TokenRing.cancel
+
+  public void take(Token t) {
+  // Fills t with the next token, waiting for the scanner if need be.  The
+  // producer stops after EOF or an invalid token, so once that has been taken
+  // it is delivered again, as TokenList.take does
+    int i;
+    if (ended) i = (int) ((taken - 1) & (capacity - 1)) * FIELDS;
+    else {
+      if (taken == tailSeen) {
+        head = released = taken;    // let the producer reuse everything taken
+        for (int spins = 0; taken == (tailSeen = tail); spins++) pause(spins);
+      }
+      i = (int) (taken & (capacity - 1)) * FIELDS;
+      taken++;
+      if (taken - released >= batch) head = released = taken;
+      ended = slots[i] == DeclScanner.EOFSym || slots[i] == DeclScanner.noSym;
+    }
+    t.set(slots[i], slots[i + 1], slots[i + 2], scanner);
+    t.id = slots[i + 3];
+    after = slots[i + 4];
+    t.value = slots[i + 5] & 0xFFFFFFFFL | (long) slots[i + 6] << 32;
+  } // TokenRing.take
+
+  public int position() {
+  // Returns the scanner position (see DeclScanner.position) just after the
+  // token taken last was scanned
+    return after;
+  } // TokenRing.position
+
+  static void pause(int spins) {
+  // Waits a little for the other side - spinning at first, then yielding
+    if (spins < 100) Thread.onSpinWait();
+    else Thread.yield();
+  } // TokenRing.pause
+
+} // TokenRing
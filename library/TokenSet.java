@@ -0,0 +1,52 @@
+package library;
+
+public final class TokenSet {
+// Immutable set of token kinds (small non-negative integers), packed one bit
+// to a member in an array of longs.  As it cannot change, one instance can be
+// shared by every call of a parser method, and a membership test costs no more
+// than a shift and a mask
+
+  private final long[] words;
+
+  public TokenSet(int ... members) {
+  // Usage - TokenSet()  TokenSet(a)  TokenSet(a, b, c) etc
+    int max = 0;
+    for (int m : members) max = Math.max(max, m);
+    words = new long[(max >>> 6) + 1];
+    for (int m : members) words[m >>> 6] |= 1L << m;
+  } // TokenSet
+
+  private TokenSet(long[] words) {
+    this.words = words;
+  } // TokenSet
+
+  public boolean contains(int i) {
+  // Returns true if i is a member of this set
+    int w = i >>> 6;
+    return w < words.length && (words[w] >>> i & 1) != 0;
+  } // TokenSet.contains
+
+  public boolean isEmpty() {
+  // Returns true if this set is empty
+    for (long w : words)
+      if (w != 0) return false;
+    return true;
+  } // TokenSet.isEmpty
+
+  public TokenSet union(TokenSet that) {
+  // Returns the union of this set and that
+    long[] u = new long[Math.max(words.length, that.words.length)];
+    for (int i = 0; i < u.length; i++)
+      u[i] = (i < words.length ? words[i] : 0) | (i < that.words.length ? that.words[i] : 0);
+    return new TokenSet(u);
+  } // TokenSet.union
+
+  public String toString() {
+  // Returns the members in the form {a, b, c}
+    StringBuilder sb = new StringBuilder("{");
+    for (int i = 0; i < 64 * words.length; i++)
+      if (contains(i)) sb.append(sb.length() > 1 ? ", " : "").append(i);
+    return sb.append('}').toString();
+  } // TokenSet.toString
+
+} // TokenSet